@@ -0,0 +1,261 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * One counter shared by all the benchmark threads, for each strategy of DataRace and
+ * the striped counters. SynchronizedCounter3 and 4 are left out: they lock a different
+ * object per thread and do not count correctly.
+ *
+ * main() runs the whole thing with 1 to 64 threads; with the plain JMH launcher use -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+
+    static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public enum Strategy {
+        // SynchronizedCounter1 and 2
+        SYNCHRONIZED {
+            @Override
+            Counter create() {
+                return new Counter() {
+                    private long value;
+
+                    @Override
+                    public synchronized void add(long x) {
+                        value += x;
+                    }
+
+                    @Override
+                    public synchronized long get() {
+                        return value;
+                    }
+                };
+            }
+        },
+        // ReentrantCounter
+        REENTRANT_LOCK {
+            @Override
+            Counter create() {
+                ReentrantLock lock = new ReentrantLock();
+                return new Counter() {
+                    private long value;
+
+                    @Override
+                    public void add(long x) {
+                        lock.lock();
+                        try {
+                            value += x;
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+
+                    @Override
+                    public long get() {
+                        lock.lock();
+                        try {
+                            return value;
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                };
+            }
+        },
+        // NonBlockingReentrantCounter, spinning on tryLock
+        TRY_LOCK {
+            @Override
+            Counter create() {
+                ReentrantLock lock = new ReentrantLock();
+                return new Counter() {
+                    private long value;
+
+                    @Override
+                    public void add(long x) {
+                        while (!lock.tryLock())
+                            Thread.onSpinWait();
+                        try {
+                            value += x;
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+
+                    @Override
+                    public long get() {
+                        while (!lock.tryLock())
+                            Thread.onSpinWait();
+                        try {
+                            return value;
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                };
+            }
+        },
+        // RWCounterThread
+        READ_WRITE_LOCK {
+            @Override
+            Counter create() {
+                ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+                return new Counter() {
+                    private long value;
+
+                    @Override
+                    public void add(long x) {
+                        lock.writeLock().lock();
+                        try {
+                            value += x;
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+
+                    @Override
+                    public long get() {
+                        lock.readLock().lock();
+                        try {
+                            return value;
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                    }
+                };
+            }
+        },
+        // AtomicCounter
+        ATOMIC {
+            @Override
+            Counter create() {
+                AtomicLong value = new AtomicLong();
+                return new Counter() {
+                    @Override
+                    public void add(long x) {
+                        value.addAndGet(x);
+                    }
+
+                    @Override
+                    public long get() {
+                        return value.get();
+                    }
+                };
+            }
+        },
+        LONG_ADDER {
+            @Override
+            Counter create() {
+                LongAdder value = new LongAdder();
+                return new Counter() {
+                    @Override
+                    public void add(long x) {
+                        value.add(x);
+                    }
+
+                    @Override
+                    public long get() {
+                        return value.sum();
+                    }
+                };
+            }
+        },
+        STRIPED {
+            @Override
+            Counter create() {
+                return new StripedCounter();
+            }
+        },
+        APPROXIMATE {
+            @Override
+            Counter create() {
+                return new ApproximateCounter(1024);
+            }
+        },
+        SNAPSHOT {
+            @Override
+            Counter create() {
+                return new SnapshotCounter(1, TimeUnit.MILLISECONDS);
+            }
+        };
+
+        abstract Counter create();
+    }
+
+    @Param
+    Strategy strategy;
+
+    private Counter counter;
+
+    /* one read every 16 operations, the rest are increments, or the opposite */
+    @State(Scope.Thread)
+    public static class Operations {
+        int n;
+    }
+
+    @Setup
+    public void setUp() {
+        counter = strategy.create();
+    }
+
+    @Benchmark
+    public void increment() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public long writeMostly(Operations ops) {
+        if ((++ops.n & 15) == 0)
+            return counter.get();
+        counter.increment();
+        return 0;
+    }
+
+    @Benchmark
+    public long readMostly(Operations ops) {
+        if ((++ops.n & 15) == 0)
+            counter.increment();
+        return counter.get();
+    }
+
+    /* every benchmark of this class once per thread count, extra arguments are JMH options */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        for (int threads : THREADS) {
+            new Runner(new OptionsBuilder()
+                    .parent(new CommandLineOptions(args))
+                    .include(CounterBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-counters-" + threads + ".json")
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * TASKS tasks that each block for sleepMillis, like an I/O call, submitted at once to
+ * the executor of every ExecutionMode; the score is in tasks per second. The pools are
+ * created once per trial, so only the scheduling and the blocking are measured.
+ *
+ * A pool completes at most threads / sleepMillis tasks per millisecond whatever the
+ * number of cores, virtual threads are bounded by the cost of creating them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ExecutorBenchmark {
+
+    static final int TASKS = 100_000;
+
+    @Param
+    ExecutionMode mode;
+
+    /* threads of the PLATFORM and FORK_JOIN pools */
+    @Param({"256"})
+    int threads;
+
+    @Param({"1", "10"})
+    int sleepMillis;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = mode.newExecutor(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void blockingTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,93 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/* the ImageProcessing engines on a random size x size image and a pool of the given number of threads */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ImageKernelBenchmark {
+
+    private static final int[][] SHARPEN = {{0, -1, 0}, {-1, 5, -1}, {0, -1, 0}};
+
+    @Param({"1024", "4096"})
+    int size;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    private PackedImage image;
+    private ForkJoinPool pool;
+    private ImagePipeline pointOps;
+    private ConvolutionEngine convolutionEngine;
+    private GeometryEngine geometryEngine;
+    private ResamplingEngine resamplingEngine;
+
+    @Setup
+    public void setUp() {
+        image = new PackedImage(size, size, new Random(42).ints(size * size, 0, 0x1000000).toArray());
+        pool = new ForkJoinPool(threads);
+        pointOps = new ImagePipeline(pool).adjustBrightness(10).adjustContrast(2).sepia().invert();
+        convolutionEngine = new ConvolutionEngine(pool);
+        geometryEngine = new GeometryEngine(pool);
+        resamplingEngine = new ResamplingEngine(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public PackedImage fusedPointOps() {
+        return pointOps.apply(image);
+    }
+
+    @Benchmark
+    public PackedImage sharpen() {
+        return convolutionEngine.convolve(image, SHARPEN, 1.0);
+    }
+
+    @Benchmark
+    public PackedImage gaussianBlur() {
+        return convolutionEngine.convolveSeparable(image, new int[]{1, 2, 1}, new int[]{1, 2, 1}, 1.0 / 16);
+    }
+
+    @Benchmark
+    public PackedImage rotateRight() {
+        return geometryEngine.rotateRight(image);
+    }
+
+    @Benchmark
+    public PackedImage rotateBilinear() {
+        return geometryEngine.rotate(image, 30);
+    }
+
+    @Benchmark
+    public PackedImage lanczosHalfSize() {
+        return resamplingEngine.resize(image, size / 2, size / 2, ResamplingEngine.Filter.LANCZOS3);
+    }
+
+    @Benchmark
+    public ImageStatistics statistics() {
+        return ImageStatistics.of(image, pool);
+    }
+}
@@ -0,0 +1,90 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * int products of MatrixProd and float products of VectorApiMatrixMultiplication, size x size;
+ * the parallel products run on pools of the given number of threads
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+
+    @Param({"256", "1024"})
+    int size;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    private MatrixProd matrixProd;
+    private VectorApiMatrixMultiplication vectorApi;
+    private float[][] result;
+    private ExecutorService executor;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        matrixProd = new MatrixProd(MatrixProd.generateRandomMatrix(size, size), MatrixProd.generateRandomMatrix(size, size));
+        vectorApi = new VectorApiMatrixMultiplication(size);
+        result = new float[size][size];
+        executor = Executors.newFixedThreadPool(threads);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[][] naiveProduct() {
+        return matrixProd.naiveProduct();
+    }
+
+    @Benchmark
+    public int[][] blockedProduct() {
+        return matrixProd.seqProduct();
+    }
+
+    @Benchmark
+    public int[][] parallelBlockedProduct() {
+        return matrixProd.parProduct(executor);
+    }
+
+    @Benchmark
+    public float[][] vectorizedMultiply() {
+        return vectorApi.optimizedVectorizedMultiply();
+    }
+
+    @Benchmark
+    public float[][] packedVectorizedMultiply() {
+        return vectorApi.packedVectorizedMultiply();
+    }
+
+    @Benchmark
+    public float[][] parallelVectorizedMultiply() {
+        // result is overwritten by every product, no allocation in the measured code
+        return vectorApi.parallelVectorizedMultiply(result, pool);
+    }
+}
@@ -0,0 +1,57 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Phases per second of PhasedEngine with next to no work per phase, i.e. the cost of
+ * the barrier and the merge, for both barriers; each invocation runs PHASES phases,
+ * thread start-up included
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class PhasedEngineBenchmark {
+
+    static final int PHASES = 10_000;
+
+    @Param
+    PhasedEngine.Sync sync;
+
+    @Param({"1", "2", "4", "8"})
+    int workers;
+
+    private PhasedEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new PhasedEngine(workers, sync);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASES)
+    public long phases() throws InterruptedException {
+        long[] total = new long[1];
+        engine.run(PHASES, w -> new long[1], (w, phase, partial) -> partial[0] += w + phase, (phase, partials) -> {
+            for (long[] partial : partials)
+                total[0] += partial[0];
+            return true;
+        });
+        return total[0];
+    }
+}
@@ -0,0 +1,103 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Hand-off between one producer and one consumer thread, ArrayBlockingQueue against
+ * the RingBuffer variants. Non-blocking offer and poll, so that the iteration can end
+ * while the other side is stuck; failed calls are counted as operations too, compare
+ * the scores of a queue with care when one side is much faster.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Group)
+public class QueueBenchmark {
+
+    static final int BATCH = 64;
+    static final Integer ELEMENT = 42;
+
+    @Param({"ArrayBlockingQueue", "spsc", "mpsc", "mpmc"})
+    String queue;
+
+    @Param({"1024"})
+    int capacity;
+
+    private BlockingQueue<Integer> q;
+    private List<Integer> items;
+
+    /* drainTo target of the consumer thread */
+    @State(Scope.Thread)
+    public static class Batch {
+        final List<Integer> drained = new ArrayList<>(BATCH);
+    }
+
+    @Setup
+    public void setUp() {
+        q = switch (queue) {
+            case "ArrayBlockingQueue" -> new ArrayBlockingQueue<>(capacity);
+            case "spsc" -> RingBuffer.spsc(capacity);
+            case "mpsc" -> RingBuffer.mpsc(capacity);
+            case "mpmc" -> RingBuffer.mpmc(capacity);
+            default -> throw new IllegalArgumentException("Unknown queue " + queue);
+        };
+        items = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++)
+            items.add(ELEMENT);
+    }
+
+    @Benchmark
+    @Group("single")
+    @GroupThreads(1)
+    public boolean offer() {
+        return q.offer(ELEMENT);
+    }
+
+    @Benchmark
+    @Group("single")
+    @GroupThreads(1)
+    public Integer poll() {
+        return q.poll();
+    }
+
+    /* BATCH elements per call: offerAll for the rings, offer one by one for ArrayBlockingQueue */
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public int offerBatch() {
+        if (q instanceof RingBuffer<Integer> ring)
+            return ring.offerAll(items);
+        int offered = 0;
+        while (offered < BATCH && q.offer(ELEMENT))
+            offered++;
+        return offered;
+    }
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public int drainBatch(Batch batch) {
+        batch.drained.clear();
+        return q.drainTo(batch.drained, BATCH);
+    }
+}
@@ -0,0 +1,74 @@
+package com.akfc.training.concurrency;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * MergeSort sorters and the radix sort on a pool of the given number of threads, with
+ * Arrays.sort as reference; every invocation sorts a fresh copy of the same input
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"65536", "4194304"})
+    int size;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    private int[] input;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        input = new Random(42).ints(size).toArray();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] sequentialMergeSort() {
+        return new SequentialMergeSorter(input.clone()).sort();
+    }
+
+    @Benchmark
+    public int[] parallelMergeSort() {
+        return new ParallelMergeSorter(input.clone(), pool).sort();
+    }
+
+    @Benchmark
+    public int[] parallelRadixSort() {
+        return new ParallelRadixSorter(input.clone(), pool).sort();
+    }
+
+    @Benchmark
+    public int[] arraysSort() {
+        int[] copy = input.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,57 @@
+package com.akfc.training.misc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* the quadratic sorts of Array; every invocation sorts a fresh copy of the same random input */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ArraySortBenchmark {
+
+    @Param({"1000", "10000"})
+    int size;
+
+    private int[] input;
+
+    @Setup
+    public void setUp() {
+        input = new Random(42).ints(size, 0, 1_000_000).toArray();
+    }
+
+    @Benchmark
+    public int[] bubbleSort() {
+        Array array = new Array(input.clone());
+        array.bubblesSort();
+        return array.getValues();
+    }
+
+    @Benchmark
+    public int[] insertionSort() {
+        Array array = new Array(input.clone());
+        array.insertionSort();
+        return array.getValues();
+    }
+
+    @Benchmark
+    public int[] quickSort() {
+        Array array = new Array(input.clone());
+        array.quickSort();
+        return array.getValues();
+    }
+}
@@ -0,0 +1,132 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin skeleton shared by the primitive merge sorters.
+ *
+ * The type parameter is the backing array type (int[], long[], ...) so that the
+ * subclasses only provide the element-level kernels and values are never boxed.
+ * Sorting ping-pongs between the data and one scratch copy of it: the recursion
+ * sorts into one buffer while using the other as scratch, so nothing is allocated
+ * per recursion level. Merges above the cutoff are themselves split in parallel.
+ */
+abstract class AbstractParallelMergeSorter<A> {
+
+    /* never split below this many elements, whatever the number of cores */
+    static final int MIN_CUTOFF = 1 << 13;
+
+    protected final ForkJoinPool pool;
+    protected final int length;
+    private final int cutoff;
+
+    protected AbstractParallelMergeSorter(int length, ForkJoinPool pool) {
+        this.length = length;
+        this.pool = pool;
+        this.cutoff = cutoff(length, pool.getParallelism());
+    }
+
+    /* leaf size giving each worker a few tasks to steal, without going below MIN_CUTOFF */
+    static int cutoff(int length, int parallelism) {
+        return Math.max(MIN_CUTOFF, length / (parallelism << 3));
+    }
+
+    /* sorts data[0..length) in place; scratch must hold a copy of data */
+    protected final void sort(A data, A scratch) {
+        sort(data, scratch, length);
+    }
+
+    /* sorts data[0..hi) in place; scratch must hold a copy of data */
+    protected final void sort(A data, A scratch, int hi) {
+        if (hi > 1) {
+            pool.invoke(new ParallelWorker(scratch, data, 0, hi));
+        }
+    }
+
+    /* sorts dst[lo..hi) using src[lo..hi) as scratch; both ranges hold the same values on entry */
+    protected abstract void sortSequential(A src, A dst, int lo, int hi);
+
+    /* whether a[i] <= a[j] */
+    protected abstract boolean inOrder(A a, int i, int j);
+
+    protected abstract void copy(A src, A dst, int lo, int hi);
+
+    /* stable merge of src[lo1..hi1) and src[lo2..hi2) into dst starting at index d */
+    protected abstract void merge(A src, int lo1, int hi1, int lo2, int hi2, A dst, int d);
+
+    /* first index in a[lo..hi) holding a value >= a[pivot] */
+    protected abstract int lowerBound(A a, int lo, int hi, int pivot);
+
+    /* first index in a[lo..hi) holding a value > a[pivot] */
+    protected abstract int upperBound(A a, int lo, int hi, int pivot);
+
+    /* worker that gets called recursively, sorts dst[lo..hi) using src[lo..hi) as scratch */
+    private class ParallelWorker extends RecursiveAction {
+
+        private final A src, dst;
+        private final int lo, hi;
+
+        ParallelWorker(A src, A dst, int lo, int hi) {
+            this.src = src;
+            this.dst = dst;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                sortSequential(src, dst, lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ParallelWorker(dst, src, lo, mid), new ParallelWorker(dst, src, mid, hi));
+            if (inOrder(src, mid - 1, mid)) {
+                // halves are already in order, no need to compare anything
+                copy(src, dst, lo, hi);
+            } else {
+                new ParallelMerger(src, lo, mid, mid, hi, dst, lo).compute();
+            }
+        }
+    }
+
+    /* merges src[lo1..hi1) and src[lo2..hi2) into dst from index d, splitting around the median of the longest run */
+    private class ParallelMerger extends RecursiveAction {
+
+        private final A src, dst;
+        private final int lo1, hi1, lo2, hi2, d;
+
+        ParallelMerger(A src, int lo1, int hi1, int lo2, int hi2, A dst, int d) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.d = d;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1, n2 = hi2 - lo2;
+            if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+                merge(src, lo1, hi1, lo2, hi2, dst, d);
+                return;
+            }
+            int m1, m2;
+            if (n1 >= n2) {
+                // values equal to the pivot coming from the right run must land after it
+                m1 = (lo1 + hi1) >>> 1;
+                m2 = lowerBound(src, lo2, hi2, m1);
+            } else {
+                // values equal to the pivot coming from the left run must land before it
+                m2 = (lo2 + hi2) >>> 1;
+                m1 = upperBound(src, lo1, hi1, m2);
+            }
+            int split = d + (m1 - lo1) + (m2 - lo2);
+            invokeAll(new ParallelMerger(src, lo1, m1, lo2, m2, dst, d),
+                    new ParallelMerger(src, m1, hi1, m2, hi2, dst, split));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter whose value is read in constant time and is at most maxError() behind.
+ *
+ * Adds go to padded per-thread cells, like StripedCounter; a cell that reaches the
+ * threshold is drained into a global total, which is all get() reads. The global total
+ * is touched once every threshold adds per cell, and get() costs one volatile read
+ * instead of a pass over the cells. Each cell holds less than threshold, so as long as
+ * no add is in progress get() is at most stripes * (threshold - 1) below the exact
+ * value, which exact() computes.
+ *
+ * Only non-negative deltas are accepted, otherwise cells could hold arbitrary
+ * amounts and the error would not be bounded.
+ */
+public class ApproximateCounter implements Counter {
+
+    private final PaddedCells cells;
+    private final long threshold;
+    private final AtomicLong total = new AtomicLong();
+
+    public ApproximateCounter(long threshold) {
+        this(threshold, PaddedCells.DEFAULT_STRIPES);
+    }
+
+    /* stripes is rounded up to a power of two */
+    public ApproximateCounter(long threshold, int stripes) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Threshold must be positive, got " + threshold);
+        this.threshold = threshold;
+        cells = new PaddedCells(stripes);
+    }
+
+    @Override
+    public void add(long x) {
+        if (x < 0)
+            throw new IllegalArgumentException("Cannot add a negative amount, got " + x);
+        int i = cells.add(x);
+        if (cells.get(i) >= threshold) {
+            // another thread may have drained it first, then there is less or nothing to move
+            long drained = cells.getAndSet(i, 0);
+            if (drained != 0)
+                total.addAndGet(drained);
+        }
+    }
+
+    /* the counted value, minus what is still in the cells */
+    @Override
+    public long get() {
+        return total.get();
+    }
+
+    /* total plus the cells, exact only if no add runs meanwhile */
+    public long exact() {
+        return total.get() + cells.sum();
+    }
+
+    /* largest difference between get() and exact() once the adds are over */
+    public long maxError() {
+        return cells.stripes() * (threshold - 1);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
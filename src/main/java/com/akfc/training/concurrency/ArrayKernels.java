@@ -0,0 +1,72 @@
+package com.akfc.training.concurrency;
+
+/**
+ * Element-wise operations and reductions over primitive arrays.
+ *
+ * get() returns the Vector API implementation when the jdk.incubator.vector module
+ * is available (--add-modules jdk.incubator.vector) and a plain scalar one otherwise,
+ * so callers can use the kernels unconditionally.
+ *
+ * Element-wise operations require all their arrays to have the same length, and
+ * min/max reject empty arrays; both cases throw IllegalArgumentException.
+ * int reductions accumulate into longs so they do not overflow.
+ */
+public interface ArrayKernels {
+
+    static ArrayKernels get() {
+        return ArrayKernelsHolder.INSTANCE;
+    }
+
+    /* whether jdk.incubator.vector is present in the boot layer */
+    static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /* out = a + b */
+    void add(int[] a, int[] b, int[] out);
+
+    void add(float[] a, float[] b, float[] out);
+
+    void add(double[] a, double[] b, double[] out);
+
+    /* out = a * b */
+    void mul(int[] a, int[] b, int[] out);
+
+    void mul(float[] a, float[] b, float[] out);
+
+    void mul(double[] a, double[] b, double[] out);
+
+    /* out = a * b + c, fused (single rounding) for floating point types */
+    void fma(int[] a, int[] b, int[] c, int[] out);
+
+    void fma(float[] a, float[] b, float[] c, float[] out);
+
+    void fma(double[] a, double[] b, double[] c, double[] out);
+
+    long dot(int[] a, int[] b);
+
+    float dot(float[] a, float[] b);
+
+    double dot(double[] a, double[] b);
+
+    long sum(int[] a);
+
+    float sum(float[] a);
+
+    double sum(double[] a);
+
+    int min(int[] a);
+
+    float min(float[] a);
+
+    double min(double[] a);
+
+    int max(int[] a);
+
+    float max(float[] a);
+
+    double max(double[] a);
+
+    /* clamps every value to [0, 255] and stores it as an unsigned byte */
+    void toUnsignedBytes(int[] src, byte[] dst);
+}
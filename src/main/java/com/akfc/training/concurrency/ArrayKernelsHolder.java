@@ -0,0 +1,24 @@
+package com.akfc.training.concurrency;
+
+/*
+ * Lazy holder of ArrayKernels.get(): the implementation is picked on the first call,
+ * and VectorArrayKernels is never loaded without the incubator module.
+ */
+final class ArrayKernelsHolder {
+
+    static final ArrayKernels INSTANCE = create();
+
+    private ArrayKernelsHolder() {
+    }
+
+    private static ArrayKernels create() {
+        if (ArrayKernels.isVectorApiAvailable()) {
+            try {
+                return new VectorArrayKernels();
+            } catch (LinkageError e) {
+                // module resolved but not usable on this platform, fall back below
+            }
+        }
+        return new ScalarArrayKernels();
+    }
+}
@@ -13,9 +13,19 @@ class Operation extends Thread {
         this.setName(name);
     }
 
+    //Question: the result depends on the order in which the threads get the lock, how to fix it?
     @Override
     public void run() {
-        //TODO
+        lock.lock();
+        try {
+            if (getName().equals("mult")) {
+                num *= 2;
+            } else {
+                num += 1;
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 }
 public class BarrierExercise {
@@ -36,6 +46,37 @@ public class BarrierExercise {
             op.join();
         }
         System.out.println(Operation.num);
+        heat();
     }
 
+    //A phased computation: heat diffusion along a bar whose ends are kept at 0 and 100 degrees.
+    //In each phase every worker updates its own slice from the previous temperatures, without
+    //any lock, and measures how much it changed; the barrier action checks the changes and
+    //stops once nothing changes anymore.
+    static void heat() throws InterruptedException {
+        int n = 100, workers = 4;
+        double[][] temperatures = {new double[n], new double[n]};
+        temperatures[0][n - 1] = temperatures[1][n - 1] = 100;
+        PhasedEngine engine = new PhasedEngine(workers);
+        long start = System.nanoTime();
+        int phases = engine.run(1_000_000, w -> new double[1], (w, phase, maxChange) -> {
+            double[] current = temperatures[phase & 1], next = temperatures[(phase + 1) & 1];
+            int from = Math.max(1, w * n / workers), to = Math.min(n - 1, (w + 1) * n / workers);
+            double change = 0;
+            for (int i = from; i < to; i++) {
+                next[i] = (current[i - 1] + current[i + 1]) / 2;
+                change = Math.max(change, Math.abs(next[i] - current[i]));
+            }
+            maxChange[0] = change;
+        }, (phase, partials) -> {
+            double change = 0;
+            for (double[] partial : partials) {
+                change = Math.max(change, partial[0]);
+            }
+            return change > 1e-6;
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.format("Heat: %d phases in %.2f s (%.0f phases/s), middle of the bar at %.2f degrees\n", phases,
+                seconds, phases / seconds, temperatures[phases & 1][n / 2]);
+    }
 }
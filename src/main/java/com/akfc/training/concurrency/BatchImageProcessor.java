@@ -0,0 +1,216 @@
+package com.akfc.training.concurrency;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Applies an ImagePipeline to every image of a directory tree.
+ *
+ * Decoder threads take files from a shared queue, decode them and run the pipeline,
+ * writer threads encode the results into the output tree, keeping the relative path
+ * and appending the extension of the output format: a.png and a.jpg become a.png.jpg
+ * and a.jpg.jpg instead of overwriting each other. The two stages are connected by a
+ * bounded queue: when the writers fall behind, decoders block on it instead of piling
+ * up decoded frames, so at most queueCapacity results wait in memory.
+ *
+ * A file that cannot be read or written is reported on System.err and counted as a
+ * failure; the batch goes on with the other files. A decoder or writer that dies of
+ * anything else, e.g. an OutOfMemoryError while encoding, stops the whole batch and
+ * process() throws IllegalStateException rather than waiting on the dead stage.
+ */
+public class BatchImageProcessor {
+
+    static final Set<String> INPUT_SUFFIXES = Set.of("jpg", "jpeg", "png", "bmp", "gif");
+
+    /* decoded result waiting for a writer */
+    private record Encoded(Path target, PackedImage image) {
+    }
+
+    /* tells a writer that no more results will come */
+    private static final Encoded END = new Encoded(null, null);
+
+    public record Report(int images, int failures, long elapsedMillis, long peakHeapBytes) {
+
+        public double imagesPerSecond() {
+            return elapsedMillis == 0 ? images * 1000.0 : images * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d images (%d failures) in %d ms, %.1f images/s, peak heap %d MB",
+                    images, failures, elapsedMillis, imagesPerSecond(), peakHeapBytes >> 20);
+        }
+    }
+
+    private final ImagePipeline pipeline;
+    private final int decoderThreads, writerThreads, queueCapacity;
+    private final String format;
+
+    public BatchImageProcessor(ImagePipeline pipeline) {
+        this(pipeline, Runtime.getRuntime().availableProcessors(), 2, 16, "jpg");
+    }
+
+    public BatchImageProcessor(ImagePipeline pipeline, int decoderThreads, int writerThreads, int queueCapacity, String format) {
+        if (decoderThreads < 1 || writerThreads < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("Thread counts and queue capacity must be positive");
+        if (!ImageIO.getImageWritersByFormatName(format).hasNext())
+            throw new IllegalArgumentException("No image writer for format " + format);
+        this.pipeline = pipeline;
+        this.decoderThreads = decoderThreads;
+        this.writerThreads = writerThreads;
+        this.queueCapacity = queueCapacity;
+        this.format = format;
+    }
+
+    /* processes every image under inputDir into outputDir, blocking until all are written */
+    public Report process(Path inputDir, Path outputDir) throws IOException, InterruptedException {
+        Queue<Path> files = new ConcurrentLinkedQueue<>(listImages(inputDir));
+        BlockingQueue<Encoded> results = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger written = new AtomicInteger(), failures = new AtomicInteger();
+        List<MemoryPoolMXBean> heapPools = heapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.currentTimeMillis();
+        ExecutorService decoders = Executors.newFixedThreadPool(decoderThreads);
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads);
+        try {
+            // both stages report to the same queue, in completion order
+            BlockingQueue<Future<Void>> done = new LinkedBlockingQueue<>();
+            CompletionService<Void> writing = new ExecutorCompletionService<>(writers, done);
+            CompletionService<Void> decoding = new ExecutorCompletionService<>(decoders, done);
+            AtomicInteger activeDecoders = new AtomicInteger(decoderThreads);
+            for (int t = 0; t < writerThreads; t++)
+                writing.submit(() -> write(results, written, failures));
+            for (int t = 0; t < decoderThreads; t++)
+                decoding.submit(() -> decode(files, inputDir, outputDir, results, failures, activeDecoders));
+            await(done, writerThreads + decoderThreads);
+        } finally {
+            decoders.shutdownNow();
+            writers.shutdownNow();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools)
+            peak += pool.getPeakUsage().getUsed();
+        return new Report(written.get(), failures.get(), elapsed, peak);
+    }
+
+    private Void decode(Queue<Path> files, Path inputDir, Path outputDir, BlockingQueue<Encoded> results,
+                        AtomicInteger failures, AtomicInteger activeDecoders) throws InterruptedException {
+        for (Path file; (file = files.poll()) != null; ) {
+            try {
+                BufferedImage decoded = ImageIO.read(file.toFile());
+                if (decoded == null)
+                    throw new IOException("unsupported image format");
+                PackedImage result = pipeline.apply(PackedImage.fromBufferedImage(decoded));
+                // blocks while the writers are behind
+                results.put(new Encoded(target(inputDir.relativize(file), outputDir), result));
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                System.err.format("Cannot process %s: %s\n", file, e);
+            }
+        }
+        // the last decoder to finish tells every writer that no more results will come
+        if (activeDecoders.decrementAndGet() == 0) {
+            for (int t = 0; t < writerThreads; t++)
+                results.put(END);
+        }
+        return null;
+    }
+
+    private Void write(BlockingQueue<Encoded> results, AtomicInteger written, AtomicInteger failures)
+            throws InterruptedException {
+        for (Encoded item; (item = results.take()) != END; ) {
+            try {
+                Files.createDirectories(item.target().getParent());
+                if (!ImageIO.write(item.image().toBufferedImage(), format, item.target().toFile()))
+                    throw new IOException("no writer for " + format);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                System.err.format("Cannot write %s: %s\n", item.target(), e);
+            }
+        }
+        return null;
+    }
+
+    private Path target(Path relative, Path outputDir) {
+        return outputDir.resolve(relative).resolveSibling(relative.getFileName() + "." + format);
+    }
+
+    static List<Path> listImages(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> INPUT_SUFFIXES.contains(suffix(p)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String suffix(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    /*
+     * waits for count tasks as they complete. The first one to fail, whatever the stage,
+     * fails the batch: the caller then shuts both pools down, interrupting a decoder
+     * blocked on a full queue whose writers are gone as well as a writer waiting for
+     * results that no decoder will send.
+     */
+    private static void await(BlockingQueue<Future<Void>> done, int count) throws InterruptedException {
+        for (int t = 0; t < count; t++) {
+            try {
+                done.take().get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchImageProcessor <input dir> <output dir> [decoder threads] [writer threads]");
+            return;
+        }
+        int decoders = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int writers = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        ImagePipeline pipeline = new ImagePipeline()
+                .adjustContrast(20)
+                .convolveSeparable(new int[]{1, 2, 1}, 1.0 / 16)
+                .sepia();
+        BatchImageProcessor processor = new BatchImageProcessor(pipeline, decoders, writers, 4 * decoders, "jpg");
+        System.out.println(processor.process(Paths.get(args[0]), Paths.get(args[1])));
+    }
+}
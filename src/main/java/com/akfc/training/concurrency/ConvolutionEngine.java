@@ -0,0 +1,242 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel convolution of packed RGB images with integer kernels.
+ *
+ * The image is split into bands of rows processed by a ForkJoin pool. Every output
+ * channel is (int) (sum of weight * input channel * factor) clamped to [0, 255],
+ * pixels outside the image wrap around to the opposite edge. Only the pixels
+ * closer to an edge than the kernel radius pay for the wrap-around: the interior
+ * uses precomputed index offsets and has no branch in its inner loop.
+ *
+ * Separable kernels (outer product of a horizontal and a vertical vector, e.g.
+ * gaussian or box blurs) go through convolveSeparable, which needs 2N instead of
+ * N*N multiplications per pixel and gives the same result as the full kernel.
+ */
+public class ConvolutionEngine {
+
+    /* bands smaller than this do not amortize the task overhead */
+    static final int MIN_BAND_ROWS = 8;
+
+    private final ForkJoinPool pool;
+
+    public ConvolutionEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ConvolutionEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private int bandRows(int height) {
+        return Math.max(MIN_BAND_ROWS, height / (pool.getParallelism() * 4));
+    }
+
+    /* convolves src with a square kernel of odd size */
+    public PackedImage convolve(PackedImage src, int[][] kernel, double factor) {
+        int size = kernel.length;
+        for (int[] row : kernel) {
+            if (row.length != size)
+                throw new IllegalArgumentException("Kernel must be square");
+        }
+        if (size % 2 == 0)
+            throw new IllegalArgumentException("Kernel size must be odd, got " + size);
+        PackedImage dst = new PackedImage(src.getWidth(), src.getHeight());
+        if (src.getPixels().length > 0)
+            pool.invoke(new KernelBand(src, dst, kernel, factor, 0, src.getHeight()));
+        return dst;
+    }
+
+    /* convolves src with the kernel vertical[y] * horizontal[x], both vectors having the same odd length */
+    public PackedImage convolveSeparable(PackedImage src, int[] horizontal, int[] vertical, double factor) {
+        if (horizontal.length != vertical.length || horizontal.length % 2 == 0)
+            throw new IllegalArgumentException("Separable kernel vectors must have the same odd length");
+        PackedImage dst = new PackedImage(src.getWidth(), src.getHeight());
+        if (src.getPixels().length > 0)
+            pool.invoke(new SeparableBand(src, dst, horizontal, vertical, factor, 0, src.getHeight()));
+        return dst;
+    }
+
+    private static int pack(int red, int green, int blue, double factor) {
+        return PackedImage.rgb(PackedImage.clamp((int) (red * factor)),
+                PackedImage.clamp((int) (green * factor)),
+                PackedImage.clamp((int) (blue * factor)));
+    }
+
+    /* computes rows [lo, hi) of the full 2D convolution */
+    private class KernelBand extends RecursiveAction {
+
+        private final PackedImage src, dst;
+        private final int[][] kernel;
+        private final double factor;
+        private final int lo, hi;
+
+        KernelBand(PackedImage src, PackedImage dst, int[][] kernel, double factor, int lo, int hi) {
+            this.src = src;
+            this.dst = dst;
+            this.kernel = kernel;
+            this.factor = factor;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > bandRows(src.getHeight())) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new KernelBand(src, dst, kernel, factor, lo, mid),
+                        new KernelBand(src, dst, kernel, factor, mid, hi));
+                return;
+            }
+            int w = src.getWidth(), h = src.getHeight(), r = kernel.length / 2;
+            int[] in = src.getPixels(), out = dst.getPixels();
+
+            // non zero taps only, as (weight, index offset from the center pixel)
+            int taps = 0;
+            int[] weights = new int[kernel.length * kernel.length];
+            int[] offsets = new int[weights.length];
+            for (int ky = 0; ky < kernel.length; ky++) {
+                for (int kx = 0; kx < kernel.length; kx++) {
+                    if (kernel[ky][kx] != 0) {
+                        weights[taps] = kernel[ky][kx];
+                        offsets[taps++] = (ky - r) * w + (kx - r);
+                    }
+                }
+            }
+
+            for (int i = lo; i < hi; i++) {
+                boolean interiorRow = i >= r && i < h - r;
+                int j = 0;
+                if (interiorRow) {
+                    for (; j < Math.min(r, w); j++)
+                        out[i * w + j] = wrapped(in, w, h, i, j);
+                    for (int end = w - r; j < end; j++) {
+                        int center = i * w + j;
+                        int red = 0, green = 0, blue = 0;
+                        for (int t = 0; t < taps; t++) {
+                            int px = in[center + offsets[t]];
+                            int weight = weights[t];
+                            red += weight * ((px >> 16) & 0xFF);
+                            green += weight * ((px >> 8) & 0xFF);
+                            blue += weight * (px & 0xFF);
+                        }
+                        out[center] = pack(red, green, blue, factor);
+                    }
+                }
+                for (; j < w; j++)
+                    out[i * w + j] = wrapped(in, w, h, i, j);
+            }
+        }
+
+        /* slow path for pixels close to an edge, neighbours wrap around the image */
+        private int wrapped(int[] in, int w, int h, int i, int j) {
+            int r = kernel.length / 2;
+            int red = 0, green = 0, blue = 0;
+            for (int ky = 0; ky < kernel.length; ky++) {
+                int row = Math.floorMod(i + ky - r, h) * w;
+                for (int kx = 0; kx < kernel.length; kx++) {
+                    int px = in[row + Math.floorMod(j + kx - r, w)];
+                    int weight = kernel[ky][kx];
+                    red += weight * ((px >> 16) & 0xFF);
+                    green += weight * ((px >> 8) & 0xFF);
+                    blue += weight * (px & 0xFF);
+                }
+            }
+            return pack(red, green, blue, factor);
+        }
+    }
+
+    /*
+     * computes rows [lo, hi) of a separable convolution: the horizontal pass runs on the
+     * band plus its halo rows into band-local channel planes, then the vertical pass reads them
+     */
+    private class SeparableBand extends RecursiveAction {
+
+        private final PackedImage src, dst;
+        private final int[] horizontal, vertical;
+        private final double factor;
+        private final int lo, hi;
+
+        SeparableBand(PackedImage src, PackedImage dst, int[] horizontal, int[] vertical, double factor, int lo, int hi) {
+            this.src = src;
+            this.dst = dst;
+            this.horizontal = horizontal;
+            this.vertical = vertical;
+            this.factor = factor;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > bandRows(src.getHeight())) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new SeparableBand(src, dst, horizontal, vertical, factor, lo, mid),
+                        new SeparableBand(src, dst, horizontal, vertical, factor, mid, hi));
+                return;
+            }
+            int w = src.getWidth(), h = src.getHeight(), size = horizontal.length, r = size / 2;
+            int[] in = src.getPixels(), out = dst.getPixels();
+            int rows = hi - lo + 2 * r;
+            int[] reds = new int[rows * w], greens = new int[rows * w], blues = new int[rows * w];
+
+            // horizontal pass, row t of the planes is image row lo - r + t (wrapped)
+            for (int t = 0; t < rows; t++) {
+                int row = Math.floorMod(lo - r + t, h) * w;
+                int plane = t * w;
+                int j = 0;
+                for (; j < Math.min(r, w); j++)
+                    horizontalWrapped(in, row, w, j, reds, greens, blues, plane + j);
+                for (int end = w - r; j < end; j++) {
+                    int red = 0, green = 0, blue = 0;
+                    int first = row + j - r;
+                    for (int k = 0; k < size; k++) {
+                        int px = in[first + k];
+                        int weight = horizontal[k];
+                        red += weight * ((px >> 16) & 0xFF);
+                        green += weight * ((px >> 8) & 0xFF);
+                        blue += weight * (px & 0xFF);
+                    }
+                    reds[plane + j] = red;
+                    greens[plane + j] = green;
+                    blues[plane + j] = blue;
+                }
+                for (; j < w; j++)
+                    horizontalWrapped(in, row, w, j, reds, greens, blues, plane + j);
+            }
+
+            // vertical pass, the halo makes every access in range
+            for (int i = lo; i < hi; i++) {
+                int top = (i - lo) * w;
+                for (int j = 0; j < w; j++) {
+                    int red = 0, green = 0, blue = 0;
+                    for (int k = 0, p = top + j; k < size; k++, p += w) {
+                        int weight = vertical[k];
+                        red += weight * reds[p];
+                        green += weight * greens[p];
+                        blue += weight * blues[p];
+                    }
+                    out[i * w + j] = pack(red, green, blue, factor);
+                }
+            }
+        }
+
+        private void horizontalWrapped(int[] in, int row, int w, int j, int[] reds, int[] greens, int[] blues, int p) {
+            int r = horizontal.length / 2;
+            int red = 0, green = 0, blue = 0;
+            for (int k = 0; k < horizontal.length; k++) {
+                int px = in[row + Math.floorMod(j + k - r, w)];
+                int weight = horizontal[k];
+                red += weight * ((px >> 16) & 0xFF);
+                green += weight * ((px >> 8) & 0xFF);
+                blue += weight * (px & 0xFF);
+            }
+            reds[p] = red;
+            greens[p] = green;
+            blues[p] = blue;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.akfc.training.concurrency;
+
+/**
+ * Counter updated concurrently by many threads.
+ *
+ * Implementations trade the cost and accuracy of get() for the cost of add() under
+ * contention: StripedCounter is exact, ApproximateCounter and SnapshotCounter return
+ * a value that may lag behind the adds by a bounded amount.
+ */
+public interface Counter {
+
+    void add(long x);
+
+    default void increment() {
+        add(1);
+    }
+
+    long get();
+}
@@ -1,6 +1,7 @@
 package com.akfc.training.concurrency;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -37,16 +38,17 @@ public class DataRace {
             t[i].join();
         }
         System.out.println(SynchronizedCounter4.counter);*/
-        /*CounterThread[] t = new CounterThread[10];
+        /*RWCounterThread[] t = new RWCounterThread[10];
         for (int i = 0; i < 10; i++) {
-            if (i < 8) t[i] = new CounterThread(CounterThread.READER);
-            else t[i] = new CounterThread(CounterThread.WRITER);
+            if (i < 8) t[i] = new RWCounterThread(RWCounterThread.READER);
+            else t[i] = new RWCounterThread(RWCounterThread.WRITER);
             t[i].start();
         }
         for (int i = 0; i < 10; i++) {
             t[i].join();
         }
-        System.out.println(CounterThread.counter);*/
+        System.out.println(RWCounterThread.counter);*/
+        //Striped counters: see StripedCounter, ApproximateCounter, SnapshotCounter and CounterBenchmark
     }
 
     static class SimpleCounter extends Thread {
@@ -61,43 +63,69 @@ public class DataRace {
     }
 
     static class AtomicCounter extends Thread {
+        static AtomicInteger counter = new AtomicInteger();
 
         @Override
         public void run() {
-            //TODO
+            for (int i = 0; i < 10; i++) {
+                counter.incrementAndGet();
+            }
         }
     }
 
     static class SynchronizedCounter1 extends Thread {
+        static int counter = 0;
 
         @Override
         public void run() {
-            //TODO
+            for (int i = 0; i < 10; i++) {
+                synchronized (SynchronizedCounter1.class) {
+                    counter++;
+                }
+            }
         }
     }
 
     static class SynchronizedCounter2 extends Thread {
+        static int counter = 0;
+
+        static synchronized void increment() {
+            counter++;
+        }
 
         @Override
         public void run() {
-            //TODO
+            for (int i = 0; i < 10; i++) {
+                increment();
+            }
         }
     }
 
     static class SynchronizedCounter3 extends Thread {
+        static int counter = 0;
 
+        //Question: Is this counter correct? Which object does each thread lock?
         @Override
         public synchronized void run() {
-            //TODO
+            for (int i = 0; i < 10; i++) {
+                counter++;
+            }
         }
     }
 
     static class SynchronizedCounter4 extends Thread {
         static Integer counter = 0;
+        static Object lock = new Object();
 
+        //Question: Is this counter correct? What does the new lock do to the threads waiting for the old one?
         @Override
         public void run() {
-            //TODO
+            for (int i = 0; i < 10; i++) {
+                synchronized (lock) {
+                    counter++;
+                    lock = new Object();
+                }
+            }
         }
 
     }
@@ -108,7 +136,14 @@ public class DataRace {
 
         @Override
         public void run() {
-            //TODO use
+            for (int i = 0; i < 10; i++) {
+                lock.lock();
+                try {
+                    counter++;
+                } finally {
+                    lock.unlock();
+                }
+            }
         }
     }
 
@@ -118,18 +153,61 @@ public class DataRace {
 
         @Override
         public void run() {
-            //TODO: non-blocking lock
+            for (int i = 0; i < 10; ) {
+                if (lock.tryLock()) {
+                    try {
+                        counter++;
+                        i++;
+                    } finally {
+                        lock.unlock();
+                    }
+                } else {
+                    //the thread is free to do something else instead of waiting
+                    Thread.onSpinWait();
+                }
+            }
         }
     }
 
     static class RWCounterThread extends Thread {
+        static final int READER = 0;
+        static final int WRITER = 1;
         Random random = new Random();
         static int counter = 0;
         static ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final int role;
+
+        RWCounterThread(int role) {
+            this.role = role;
+        }
 
         @Override
         public void run() {
-            //TODO: Illustrate read / write lock
+            for (int i = 0; i < 10; i++) {
+                if (role == WRITER) {
+                    lock.writeLock().lock();
+                    try {
+                        counter++;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                } else {
+                    //readers hold the read lock at the same time, a writer waits for all of them
+                    lock.readLock().lock();
+                    try {
+                        int seen = counter;
+                        Thread.sleep(random.nextInt(2));
+                        if (seen != counter) {
+                            throw new IllegalStateException("Counter changed under a read lock");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+            }
         }
     }
 }
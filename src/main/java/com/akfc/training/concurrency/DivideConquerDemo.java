@@ -18,6 +18,17 @@ public class DivideConquerDemo {
         start = System.currentTimeMillis();
         total = pool.invoke(new RecursiveSum(0, 1_000_000));
         duration = System.currentTimeMillis() - start;
+        System.out.println(total + " computed in " + duration + " ms");
+        // same sum, primitive all the way and split only while workers are idle
+        start = System.currentTimeMillis();
+        total = ParallelReduce.reduceLong(pool, 0, 1_000_001, (lo, hi) -> {
+            long sum = 0;
+            for (long i = lo; i < hi; i++) {
+                sum += i;
+            }
+            return sum;
+        }, Long::sum);
+        duration = System.currentTimeMillis() - start;
         pool.shutdown();
         System.out.println(total + " computed in " + duration + " ms");
     }
@@ -0,0 +1,127 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parallel merge sort specialized for double[] (e.g. scores).
+ *
+ * The result follows the same total order as Arrays.sort(double[]): -0.0 comes
+ * before 0.0 and NaNs are moved to the end. The merge itself only uses primitive
+ * comparisons, NaNs are set aside before sorting and the zeros fixed afterwards.
+ */
+class DoubleParallelMergeSorter extends AbstractParallelMergeSorter<double[]> {
+
+    private double[] array;
+
+    public DoubleParallelMergeSorter(double[] array) {
+        this(array, ForkJoinPool.commonPool());
+    }
+
+    public DoubleParallelMergeSorter(double[] array, ForkJoinPool pool) {
+        super(array.length, pool);
+        this.array = array;
+    }
+
+    /* moves NaNs to the tail of the array and returns how many were found */
+    private static int moveNaNsToEnd(double[] a) {
+        int end = a.length;
+        for (int i = end - 1; i >= 0; i--) {
+            if (Double.isNaN(a[i])) {
+                a[i] = a[--end];
+                a[end] = Double.NaN;
+            }
+        }
+        return a.length - end;
+    }
+
+    /* returns sorted array */
+    public double[] sort() {
+        int end = length - moveNaNsToEnd(array);
+        sort(array, array.clone(), end);
+        orderZeros(array, end);
+        return array;
+    }
+
+    /* comparisons treat -0.0 and 0.0 as equal, put the negative zeros first */
+    private static void orderZeros(double[] a, int length) {
+        int lo = 0, hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < 0.0) lo = mid + 1;
+            else hi = mid;
+        }
+        int negativeZeros = 0, end = lo;
+        for (; end < length && a[end] == 0.0; end++) {
+            if (Double.doubleToRawLongBits(a[end]) < 0) negativeZeros++;
+        }
+        for (int i = lo; i < end; i++) {
+            a[i] = i < lo + negativeZeros ? -0.0 : 0.0;
+        }
+    }
+
+    @Override
+    protected void sortSequential(double[] src, double[] dst, int lo, int hi) {
+        if (hi - lo <= SequentialMergeSorter.INSERTION_SORT_THRESHOLD) {
+            for (int i = lo + 1; i < hi; i++) {
+                double value = dst[i];
+                int j = i - 1;
+                while (j >= lo && dst[j] > value) {
+                    dst[j + 1] = dst[j];
+                    j--;
+                }
+                dst[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortSequential(dst, src, lo, mid);
+        sortSequential(dst, src, mid, hi);
+        if (src[mid - 1] <= src[mid]) {
+            copy(src, dst, lo, hi);
+        } else {
+            merge(src, lo, mid, mid, hi, dst, lo);
+        }
+    }
+
+    @Override
+    protected boolean inOrder(double[] a, int i, int j) {
+        return a[i] <= a[j];
+    }
+
+    @Override
+    protected void copy(double[] src, double[] dst, int lo, int hi) {
+        System.arraycopy(src, lo, dst, lo, hi - lo);
+    }
+
+    @Override
+    protected void merge(double[] src, int lo1, int hi1, int lo2, int hi2, double[] dst, int d) {
+        int i = lo1, j = lo2;
+        while (i < hi1 && j < hi2) {
+            dst[d++] = src[j] < src[i] ? src[j++] : src[i++];
+        }
+        System.arraycopy(src, i, dst, d, hi1 - i);
+        System.arraycopy(src, j, dst, d + hi1 - i, hi2 - j);
+    }
+
+    @Override
+    protected int lowerBound(double[] a, int lo, int hi, int pivot) {
+        double key = a[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    protected int upperBound(double[] a, int lo, int hi, int pivot) {
+        double key = a[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
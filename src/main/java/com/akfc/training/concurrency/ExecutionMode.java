@@ -0,0 +1,92 @@
+package com.akfc.training.concurrency;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * How the tasks of a demo or a job fan-out are run, chosen by configuration.
+ *
+ * VIRTUAL starts one virtual thread per task: a task blocked in sleep() or I/O
+ * unmounts from its carrier thread, so thousands of blocking tasks run at once on a
+ * handful of cores. PLATFORM is the classic fixed pool, at most threads tasks at a
+ * time, whatever they do. FORK_JOIN is a work-stealing pool of threads workers, meant
+ * for CPU-bound tasks that fork subtasks; a blocking task holds its worker just like
+ * a platform thread.
+ *
+ * configured() reads the mode from the executor.mode system property (virtual,
+ * platform or fork-join, VIRTUAL when not set) and the number of threads of the pools
+ * from executor.threads (the number of processors when not set), e.g.
+ * -Dexecutor.mode=platform -Dexecutor.threads=200.
+ */
+public enum ExecutionMode {
+
+    VIRTUAL {
+        /* threads is ignored, every task has a thread of its own */
+        @Override
+        public ExecutorService newExecutor(int threads) {
+            checkThreads(threads);
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+    },
+    PLATFORM {
+        @Override
+        public ExecutorService newExecutor(int threads) {
+            checkThreads(threads);
+            return Executors.newFixedThreadPool(threads);
+        }
+    },
+    FORK_JOIN {
+        @Override
+        public ExecutorService newExecutor(int threads) {
+            checkThreads(threads);
+            return new ForkJoinPool(threads);
+        }
+    };
+
+    public static final String MODE_PROPERTY = "executor.mode";
+    public static final String THREADS_PROPERTY = "executor.threads";
+
+    public abstract ExecutorService newExecutor(int threads);
+
+    /* executor with the configured number of threads */
+    public ExecutorService newExecutor() {
+        return newExecutor(configuredThreads());
+    }
+
+    private static void checkThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive, got " + threads);
+    }
+
+    /* mode named by the executor.mode property, case insensitive, '-' for '_' */
+    public static ExecutionMode configured() {
+        String mode = System.getProperty(MODE_PROPERTY);
+        if (mode == null || mode.isBlank())
+            return VIRTUAL;
+        try {
+            return valueOf(mode.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown %s %s, expected one of %s", MODE_PROPERTY, mode,
+                    Arrays.toString(values())), e);
+        }
+    }
+
+    public static int configuredThreads() {
+        String threads = System.getProperty(THREADS_PROPERTY);
+        if (threads == null || threads.isBlank())
+            return Runtime.getRuntime().availableProcessors();
+        try {
+            return Integer.parseInt(threads.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid %s %s", THREADS_PROPERTY, threads), e);
+        }
+    }
+
+    /* new executor of the configured mode and number of threads */
+    public static ExecutorService newConfiguredExecutor() {
+        return configured().newExecutor();
+    }
+}
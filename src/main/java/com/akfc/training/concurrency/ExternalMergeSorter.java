@@ -0,0 +1,279 @@
+package com.akfc.training.concurrency;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Out-of-core sort of a binary file of big-endian ints, for files larger than the heap.
+ *
+ * The sort works in two phases:
+ * 1. the input is read sequentially in runs of runLength ints, each run is sorted in
+ *    memory with ParallelMergeSorter and written to a temporary file through a FileChannel
+ * 2. the runs are memory-mapped and merged with a k-way merge driven by a primitive
+ *    min-heap, the output being written sequentially through a FileChannel
+ *
+ * Heap usage is bounded by the run buffers (twice runLength ints, the sorter needs
+ * a scratch copy, both allocated once and reused by every run) whatever the input size. When there are more runs than fanIn,
+ * intermediate merge passes combine them fanIn at a time.
+ */
+public class ExternalMergeSorter {
+
+    /* 64M ints, i.e. 256 MB per run */
+    static final int DEFAULT_RUN_LENGTH = 1 << 26;
+    static final int DEFAULT_FAN_IN = 128;
+
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final Path input, output, tempDir;
+    private final int runLength, fanIn;
+
+    public ExternalMergeSorter(Path input, Path output) {
+        this(input, output, output.toAbsolutePath().getParent(), DEFAULT_RUN_LENGTH, DEFAULT_FAN_IN);
+    }
+
+    public ExternalMergeSorter(Path input, Path output, Path tempDir, int runLength, int fanIn) {
+        if (runLength < 1 || fanIn < 2)
+            throw new IllegalArgumentException(String.format("Invalid run length %d or fan-in %d", runLength, fanIn));
+        this.input = input;
+        this.output = output;
+        this.tempDir = tempDir;
+        this.runLength = runLength;
+        this.fanIn = fanIn;
+    }
+
+    /* sorts input into output, temporary run files are always removed */
+    public void sort() throws IOException {
+        List<Path> created = new ArrayList<>();
+        try {
+            List<Path> runs = createRuns(created);
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    Path run = createTempRun(created);
+                    merged.add(run);
+                    merge(group, run);
+                    for (Path p : group)
+                        Files.delete(p);
+                }
+                runs = merged;
+            }
+            if (runs.size() == 1) {
+                Files.move(runs.get(0), output, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                merge(runs, output);
+            }
+        } finally {
+            for (Path run : created)
+                Files.deleteIfExists(run);
+        }
+    }
+
+    private Path createTempRun(List<Path> created) throws IOException {
+        Path run = Files.createTempFile(tempDir, "run", ".bin");
+        created.add(run);
+        return run;
+    }
+
+    /* splits the input into sorted run files */
+    private List<Path> createRuns(List<Path> created) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(input, READ)) {
+            long size = in.size();
+            if (size % Integer.BYTES != 0)
+                throw new IOException(String.format("%s holds %d bytes, not a whole number of ints", input, size));
+            long remaining = size / Integer.BYTES;
+            ByteBuffer io = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            // the only two arrays of the sort, reused by every run, the last one included
+            int[] buffer = new int[(int) Math.min(runLength, remaining)], scratch = new int[buffer.length];
+            ParallelMergeSorter sorter = new ParallelMergeSorter(buffer);
+            while (remaining > 0) {
+                int length = (int) Math.min(buffer.length, remaining);
+                readInts(in, io, buffer, length);
+                sorter.sort(length, scratch);
+                Path file = createTempRun(created);
+                runs.add(file);
+                try (FileChannel out = FileChannel.open(file, WRITE, TRUNCATE_EXISTING)) {
+                    writeInts(out, io, buffer, length);
+                }
+                remaining -= length;
+            }
+        }
+        return runs;
+    }
+
+    private static void readInts(FileChannel in, ByteBuffer io, int[] dst, int length) throws IOException {
+        int filled = 0;
+        while (filled < length) {
+            io.clear();
+            io.limit((int) Math.min(io.capacity(), (long) (length - filled) * Integer.BYTES));
+            while (io.hasRemaining()) {
+                if (in.read(io) < 0)
+                    throw new IOException("Unexpected end of file");
+            }
+            io.flip();
+            IntBuffer ints = io.asIntBuffer();
+            int n = ints.remaining();
+            ints.get(dst, filled, n);
+            filled += n;
+        }
+    }
+
+    private static void writeInts(FileChannel out, ByteBuffer io, int[] src, int length) throws IOException {
+        int written = 0;
+        while (written < length) {
+            io.clear();
+            int n = Math.min(io.capacity() / Integer.BYTES, length - written);
+            io.asIntBuffer().put(src, written, n);
+            io.limit(n * Integer.BYTES);
+            while (io.hasRemaining())
+                out.write(io);
+            written += n;
+        }
+    }
+
+    /* k-way merge of the sorted run files into target */
+    private static void merge(List<Path> runs, Path target) throws IOException {
+        int k = runs.size();
+        try (Arena arena = Arena.ofConfined();
+             FileChannel out = FileChannel.open(target, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            MemorySegment[] segments = new MemorySegment[k];
+            long[] positions = new long[k];
+            // min-heap of the current head of every non exhausted run
+            int[] heapKeys = new int[k];
+            int[] heapRuns = new int[k];
+            int heapSize = 0;
+            for (int r = 0; r < k; r++) {
+                try (FileChannel in = FileChannel.open(runs.get(r), READ)) {
+                    segments[r] = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size(), arena);
+                }
+                if (segments[r].byteSize() > 0) {
+                    heapKeys[heapSize] = segments[r].get(INT, 0);
+                    heapRuns[heapSize] = r;
+                    positions[r] = Integer.BYTES;
+                    siftUp(heapKeys, heapRuns, heapSize++);
+                }
+            }
+            ByteBuffer io = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            while (heapSize > 0) {
+                if (!io.hasRemaining()) {
+                    flush(out, io);
+                }
+                io.putInt(heapKeys[0]);
+                int r = heapRuns[0];
+                if (positions[r] < segments[r].byteSize()) {
+                    heapKeys[0] = segments[r].get(INT, positions[r]);
+                    positions[r] += Integer.BYTES;
+                } else {
+                    heapSize--;
+                    heapKeys[0] = heapKeys[heapSize];
+                    heapRuns[0] = heapRuns[heapSize];
+                }
+                siftDown(heapKeys, heapRuns, heapSize);
+            }
+            flush(out, io);
+        }
+    }
+
+    private static void flush(FileChannel out, ByteBuffer io) throws IOException {
+        io.flip();
+        while (io.hasRemaining())
+            out.write(io);
+        io.clear();
+    }
+
+    private static void siftUp(int[] keys, int[] runs, int i) {
+        int key = keys[i], run = runs[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key)
+                break;
+            keys[i] = keys[parent];
+            runs[i] = runs[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        runs[i] = run;
+    }
+
+    private static void siftDown(int[] keys, int[] runs, int size) {
+        if (size == 0)
+            return;
+        int key = keys[0], run = runs[0];
+        int i = 0, half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if (key <= keys[child])
+                break;
+            keys[i] = keys[child];
+            runs[i] = runs[child];
+            i = child;
+        }
+        keys[i] = key;
+        runs[i] = run;
+    }
+
+    static void generateRandomFile(Path file, long length) throws IOException {
+        System.out.format("Generating random file of %d ints...\n", length);
+        Random rand = new Random();
+        int[] chunk = new int[IO_BUFFER_SIZE / Integer.BYTES];
+        ByteBuffer io = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+        try (FileChannel out = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (long done = 0; done < length; done += chunk.length) {
+                int n = (int) Math.min(chunk.length, length - done);
+                for (int i = 0; i < n; i++)
+                    chunk[i] = rand.nextInt();
+                writeInts(out, io, chunk, n);
+            }
+        }
+    }
+
+    static boolean isSorted(Path file) throws IOException {
+        try (Arena arena = Arena.ofConfined(); FileChannel in = FileChannel.open(file, READ)) {
+            MemorySegment segment = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size(), arena);
+            for (long offset = Integer.BYTES; offset < segment.byteSize(); offset += Integer.BYTES) {
+                if (segment.get(INT, offset - Integer.BYTES) > segment.get(INT, offset))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final long length = args.length > 0 ? Long.parseLong(args[0]) : 200_000_000L;
+        final int runLength = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUN_LENGTH;
+        Path input = Files.createTempFile("unsorted", ".bin");
+        Path output = Files.createTempFile("sorted", ".bin");
+        try {
+            generateRandomFile(input, length);
+            ExternalMergeSorter sorter = new ExternalMergeSorter(input, output, output.getParent(), runLength, DEFAULT_FAN_IN);
+            long start = System.currentTimeMillis();
+            sorter.sort();
+            long duration = System.currentTimeMillis() - start;
+            System.out.format("Sorted %d ints in %d ms (%.1f MB/s)\n", length, duration,
+                    length * Integer.BYTES / 1000.0 / Math.max(1, duration));
+            if (!isSorted(output))
+                throw new Error("ERROR: output is not sorted!");
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+}
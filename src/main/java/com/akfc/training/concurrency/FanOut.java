@@ -0,0 +1,181 @@
+package com.akfc.training.concurrency;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a list of slow calls at once and combines their outcomes: all of them, any
+ * one, or the first n that succeed, within a deadline.
+ *
+ * Every call runs in a virtual thread of its own, forked in a StructuredTaskScope
+ * (preview in Java 21): as soon as the outcome is known (a failure for allOf, a
+ * success for anyOf, n of them for firstSuccesses) the scope shuts down, which
+ * interrupts the calls still running, and the method returns once they have all
+ * stopped. A deadline that passes first does the same and throws TimeoutException.
+ * No thread outlives the method.
+ *
+ * The latency and outcome of every call that started, including the cancelled ones,
+ * are reported to the metrics consumer, from the thread of the call.
+ */
+public final class FanOut {
+
+    public enum Outcome { SUCCESS, FAILED, CANCELLED }
+
+    /* call number index of the list ended with outcome after nanos */
+    public record Timing(int index, Outcome outcome, long nanos) {
+
+        public Duration latency() {
+            return Duration.ofNanos(nanos);
+        }
+    }
+
+    private final Consumer<? super Timing> metrics;
+
+    public FanOut() {
+        this(timing -> {
+        });
+    }
+
+    public FanOut(Consumer<? super Timing> metrics) {
+        this.metrics = metrics;
+    }
+
+    /* results of all the calls, in order; the first failure cancels the others */
+    public <T> List<T> allOf(List<? extends Callable<? extends T>> calls, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            List<Subtask<T>> subtasks = fork(scope, calls);
+            join(scope, timeout);
+            scope.throwIfFailed();
+            List<T> results = new ArrayList<>(subtasks.size());
+            for (Subtask<T> subtask : subtasks)
+                results.add(subtask.get());
+            return results;
+        }
+    }
+
+    /* result of the first call that succeeds, the others are cancelled */
+    public <T> T anyOf(List<? extends Callable<? extends T>> calls, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        checkCalls(calls, 1);
+        try (var scope = new StructuredTaskScope.ShutdownOnSuccess<T>()) {
+            fork(scope, calls);
+            join(scope, timeout);
+            return scope.result();
+        }
+    }
+
+    /*
+     * results of the first n calls to succeed, in completion order; the others are
+     * cancelled, also as soon as too many calls have failed for n to succeed
+     */
+    public <T> List<T> firstSuccesses(List<? extends Callable<? extends T>> calls, int n, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        checkCalls(calls, n);
+        FirstSuccesses<T> scope = new FirstSuccesses<>(n, calls.size() - n);
+        try (scope) {
+            fork(scope, calls);
+            join(scope, timeout);
+        }
+        // closed: every call has completed, results and failures are final
+        return scope.results();
+    }
+
+    private static void checkCalls(List<?> calls, int n) {
+        if (n < 1 || n > calls.size())
+            throw new IllegalArgumentException(String.format("Cannot wait for %d successes out of %d calls", n,
+                    calls.size()));
+    }
+
+    private <T> List<Subtask<T>> fork(StructuredTaskScope<? super T> scope, List<? extends Callable<? extends T>> calls) {
+        List<Subtask<T>> subtasks = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++)
+            subtasks.add(scope.fork(timed(i, calls.get(i))));
+        return subtasks;
+    }
+
+    private <T> Callable<T> timed(int index, Callable<? extends T> call) {
+        return () -> {
+            long start = System.nanoTime();
+            Outcome outcome = Outcome.FAILED;
+            try {
+                T result = call.call();
+                outcome = Outcome.SUCCESS;
+                return result;
+            } catch (InterruptedException e) {
+                outcome = Outcome.CANCELLED;
+                throw e;
+            } finally {
+                if (outcome == Outcome.FAILED && Thread.currentThread().isInterrupted())
+                    outcome = Outcome.CANCELLED;
+                metrics.accept(new Timing(index, outcome, System.nanoTime() - start));
+            }
+        };
+    }
+
+    private static void join(StructuredTaskScope<?> scope, Duration timeout) throws InterruptedException,
+            TimeoutException {
+        try {
+            scope.joinUntil(Instant.now().plus(timeout));
+        } catch (TimeoutException e) {
+            // cancels the calls still running, close() then waits for them
+            scope.shutdown();
+            throw e;
+        }
+    }
+
+    /* shuts down after n successes, or after more failures than can be tolerated */
+    private static final class FirstSuccesses<T> extends StructuredTaskScope<T> {
+
+        private final int needed, tolerated;
+        private final AtomicInteger successes = new AtomicInteger(), failed = new AtomicInteger();
+        private final List<T> results = Collections.synchronizedList(new ArrayList<>());
+        private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        FirstSuccesses(int needed, int tolerated) {
+            this.needed = needed;
+            this.tolerated = tolerated;
+        }
+
+        @Override
+        protected void handleComplete(Subtask<? extends T> subtask) {
+            switch (subtask.state()) {
+                case SUCCESS -> {
+                    int rank = successes.incrementAndGet();
+                    if (rank <= needed)
+                        results.add(subtask.get());
+                    if (rank == needed)
+                        shutdown();
+                }
+                case FAILED -> {
+                    failures.add(subtask.exception());
+                    if (failed.incrementAndGet() > tolerated)
+                        shutdown();
+                }
+                default -> {
+                }
+            }
+        }
+
+        List<T> results() throws ExecutionException {
+            if (results.size() == needed)
+                return new ArrayList<>(results);
+            ExecutionException e = new ExecutionException(String.format("%d of the %d successes needed, %d failures",
+                    results.size(), needed, failures.size()), failures.peek());
+            failures.stream().skip(1).forEach(e::addSuppressed);
+            throw e;
+        }
+    }
+}
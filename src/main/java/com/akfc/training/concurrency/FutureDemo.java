@@ -1,15 +1,29 @@
 package com.akfc.training.concurrency;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.*;
 
 public class FutureDemo {
 
+    //Run with -Dexecutor.mode=virtual|platform|fork-join (see ExecutionMode)
     public static void main(String[] args) throws ExecutionException, InterruptedException {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<Integer> res = executor.submit(new Operation());
-        System.out.println("Requesting operation");
-        System.out.println("Response = " + res.get());
-        executor.shutdown();
+        try (ExecutorService executor = ExecutionMode.newConfiguredExecutor()) {
+            Future<Integer> res = executor.submit(new Operation());
+            System.out.println("Requesting operation");
+            System.out.println("Response = " + res.get());
+        }
+        //Question: how long would 1000 Operations take in each mode? See ExecutorBenchmark
+        //Fan out: three operations at once on virtual threads, all of them within 5 s
+        FanOut fanOut = new FanOut(timing -> System.out.println("Subtask " + timing.index() + " "
+                + timing.outcome() + " in " + timing.latency().toMillis() + " ms"));
+        try {
+            List<Integer> all = fanOut.allOf(List.of(new Operation(), new Operation(), new Operation()),
+                    Duration.ofSeconds(5));
+            System.out.println("Responses = " + all);
+        } catch (TimeoutException e) {
+            System.out.println("No response in time");
+        }
     }
 
     static class Operation implements Callable<Integer> {
@@ -0,0 +1,206 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel geometric transforms of packed RGB images, always into a new image.
+ *
+ * A transpose-like transform (rotation by 90 degrees, transpose) reads the source
+ * row by row but writes the destination column by column; done naively every write
+ * of a large image touches a different cache line, and page. Here the image is cut
+ * recursively, always halving its longer side, until a block fits in TILE x TILE:
+ * the source and destination lines of such a block stay in L1 whatever the cache
+ * sizes are (cache-oblivious). The top levels of the recursion are ForkJoin tasks,
+ * so blocks are processed in parallel.
+ *
+ * rotate(src, degrees) rotates by any angle around the center. It walks the
+ * destination and samples the source with bilinear interpolation, so unlike a
+ * forward mapping it leaves no holes; destination pixels with no source are black.
+ */
+public class GeometryEngine {
+
+    /* 32 x 32 ints, a 4 KB block of each image */
+    static final int TILE = 32;
+    /* blocks smaller than this many pixels are not worth a task */
+    static final int MIN_TASK_PIXELS = 1 << 14;
+
+    private final ForkJoinPool pool;
+
+    public GeometryEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public GeometryEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /* pixels [x0, x1) x [y0, y1) of a block, of the source for the exact transforms */
+    @FunctionalInterface
+    private interface BlockOp {
+        void apply(int x0, int y0, int x1, int y1);
+    }
+
+    /* dst(y, x) = src(x, y) */
+    public PackedImage transpose(PackedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int[] in = src.getPixels();
+        PackedImage dst = new PackedImage(h, w);
+        int[] out = dst.getPixels();
+        run(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++)
+                for (int x = x0, i = y * w + x0; x < x1; x++, i++)
+                    out[x * h + y] = in[i];
+        });
+        return dst;
+    }
+
+    /* quarter turn clockwise, the top-left corner goes to the top-right */
+    public PackedImage rotateRight(PackedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int[] in = src.getPixels();
+        PackedImage dst = new PackedImage(h, w);
+        int[] out = dst.getPixels();
+        run(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++)
+                for (int x = x0, i = y * w + x0; x < x1; x++, i++)
+                    out[x * h + h - 1 - y] = in[i];
+        });
+        return dst;
+    }
+
+    /* quarter turn counterclockwise, the top-left corner goes to the bottom-left */
+    public PackedImage rotateLeft(PackedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int[] in = src.getPixels();
+        PackedImage dst = new PackedImage(h, w);
+        int[] out = dst.getPixels();
+        run(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++)
+                for (int x = x0, i = y * w + x0; x < x1; x++, i++)
+                    out[(w - 1 - x) * h + y] = in[i];
+        });
+        return dst;
+    }
+
+    /* mirror around the vertical axis, left and right are swapped */
+    public PackedImage flipVertically(PackedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int[] in = src.getPixels();
+        PackedImage dst = new PackedImage(w, h);
+        int[] out = dst.getPixels();
+        run(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++)
+                for (int x = x0, i = y * w + x0, o = y * w + w - 1 - x0; x < x1; x++, i++, o--)
+                    out[o] = in[i];
+        });
+        return dst;
+    }
+
+    /* mirror around the horizontal axis, top and bottom are swapped */
+    public PackedImage flipHorizontally(PackedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int[] in = src.getPixels();
+        PackedImage dst = new PackedImage(w, h);
+        int[] out = dst.getPixels();
+        run(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++)
+                System.arraycopy(in, y * w + x0, out, (h - 1 - y) * w + x0, x1 - x0);
+        });
+        return dst;
+    }
+
+    /*
+     * rotation by degrees around the center of the image, counterclockwise on screen for
+     * positive angles; the result has the same size as src
+     */
+    public PackedImage rotate(PackedImage src, double degrees) {
+        int w = src.getWidth(), h = src.getHeight();
+        int[] in = src.getPixels();
+        PackedImage dst = new PackedImage(w, h);
+        int[] out = dst.getPixels();
+        double radians = Math.toRadians(degrees);
+        double cos = Math.cos(radians), sin = Math.sin(radians);
+        int centerX = w / 2, centerY = h / 2;
+        // blocks of the destination; each one is mapped back to a block of the source
+        run(w, h, (x0, y0, x1, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                double dx = x0 - centerX, dy = y - centerY;
+                // source coordinates of (x0, y), then moving by (cos, sin) per destination pixel
+                double sx = cos * dx - sin * dy + centerX;
+                double sy = sin * dx + cos * dy + centerY;
+                for (int x = x0, o = y * w + x0; x < x1; x++, o++, sx += cos, sy += sin)
+                    out[o] = bilinear(in, w, h, sx, sy);
+            }
+        });
+        return dst;
+    }
+
+    /* src sampled at (x, y) with bilinear interpolation, black outside of the image */
+    static int bilinear(int[] in, int w, int h, double x, double y) {
+        if (!(x > -1 && x < w && y > -1 && y < h))
+            return 0;
+        int x0 = (int) Math.floor(x), y0 = (int) Math.floor(y);
+        // fractional parts rounded to 8 bit fixed point weights, so a rounding error on an
+        // integer coordinate still samples exactly one pixel
+        int fx = (int) ((x - x0) * 256 + 0.5), fy = (int) ((y - y0) * 256 + 0.5);
+        int left = Math.max(x0, 0), right = Math.min(x0 + 1, w - 1);
+        int top = Math.max(y0, 0) * w, bottom = Math.min(y0 + 1, h - 1) * w;
+        int p00 = in[top + left], p01 = in[top + right], p10 = in[bottom + left], p11 = in[bottom + right];
+        int result = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int upper = ((p00 >> shift) & 0xFF) * (256 - fx) + ((p01 >> shift) & 0xFF) * fx;
+            int lower = ((p10 >> shift) & 0xFF) * (256 - fx) + ((p11 >> shift) & 0xFF) * fx;
+            result |= ((upper * (256 - fy) + lower * fy + (1 << 15)) >> 16) << shift;
+        }
+        return result;
+    }
+
+    private void run(int w, int h, BlockOp op) {
+        if ((long) w * h > 0)
+            pool.invoke(new Block(op, 0, 0, w, h));
+    }
+
+    /* cuts its region in two along the longer side, forking while the halves are big enough */
+    private static class Block extends RecursiveAction {
+
+        private final BlockOp op;
+        private final int x0, y0, x1, y1;
+
+        Block(BlockOp op, int x0, int y0, int x1, int y1) {
+            this.op = op;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) (x1 - x0) * (y1 - y0) <= MIN_TASK_PIXELS) {
+                walk(op, x0, y0, x1, y1);
+            } else if (x1 - x0 >= y1 - y0) {
+                int mid = (x0 + x1) >>> 1;
+                invokeAll(new Block(op, x0, y0, mid, y1), new Block(op, mid, y0, x1, y1));
+            } else {
+                int mid = (y0 + y1) >>> 1;
+                invokeAll(new Block(op, x0, y0, x1, mid), new Block(op, x0, mid, x1, y1));
+            }
+        }
+
+        /* same recursion, sequential, down to TILE x TILE */
+        private static void walk(BlockOp op, int x0, int y0, int x1, int y1) {
+            if (x1 - x0 <= TILE && y1 - y0 <= TILE) {
+                op.apply(x0, y0, x1, y1);
+            } else if (x1 - x0 >= y1 - y0) {
+                int mid = (x0 + x1) >>> 1;
+                walk(op, x0, y0, mid, y1);
+                walk(op, mid, y0, x1, y1);
+            } else {
+                int mid = (y0 + y1) >>> 1;
+                walk(op, x0, y0, x1, mid);
+                walk(op, x0, mid, x1, y1);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.akfc.training.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lazily evaluated chain of image transforms.
+ *
+ * Builder methods only record the operations; nothing is computed until apply().
+ * Consecutive point-wise operations are fused: the image is cut into tiles small
+ * enough to stay in the L1 cache, each tile is copied once to the result and every
+ * fused operation then runs over it in turn. A chain of point operations therefore
+ * costs one read and one write of the frame and a single allocation, instead of
+ * one of each per operation. Operations needing neighbouring pixels (convolutions,
+ * geometric transforms) are full-frame stages between fused groups; the groups
+ * following such a stage work in place on its output.
+ *
+ * A pipeline can be applied to any number of images, but is not meant to be
+ * modified while being applied.
+ */
+public class ImagePipeline {
+
+    /* pixels per fused tile, 16 KB of ints */
+    static final int TILE_SIZE = 4096;
+    /* tiles per ForkJoin leaf task */
+    static final int TILES_PER_TASK = 16;
+
+    private final ForkJoinPool pool;
+    private final ConvolutionEngine convolutionEngine;
+    // every entry is either a PixelOp or an UnaryOperator<PackedImage>
+    private final List<Object> stages = new ArrayList<>();
+
+    public ImagePipeline() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ImagePipeline(ForkJoinPool pool) {
+        this.pool = pool;
+        this.convolutionEngine = new ConvolutionEngine(pool);
+    }
+
+    /* appends a point-wise operation, fused with its point-wise neighbours */
+    public ImagePipeline map(PixelOp op) {
+        stages.add(op);
+        return this;
+    }
+
+    /* appends a full-frame stage, which must not modify its input */
+    public ImagePipeline then(UnaryOperator<PackedImage> stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    public ImagePipeline keepLayer(int layer) {
+        return map(PixelOps.keepLayer(layer));
+    }
+
+    public ImagePipeline dropLayer(int layer) {
+        return map(PixelOps.dropLayer(layer));
+    }
+
+    public ImagePipeline grayScale() {
+        return map(PixelOps.grayScale());
+    }
+
+    public ImagePipeline sepia() {
+        return map(PixelOps.sepia());
+    }
+
+    public ImagePipeline invert() {
+        return map(PixelOps.invert());
+    }
+
+    public ImagePipeline swap(int times) {
+        return map(PixelOps.swap(times));
+    }
+
+    public ImagePipeline adjustBrightness(int val) {
+        return map(PixelOps.adjustBrightness(val));
+    }
+
+    public ImagePipeline adjustContrast(int factor) {
+        return map(PixelOps.adjustContrast(factor));
+    }
+
+    /* per-channel stretch computed from the statistics of the image reaching this stage */
+    public ImagePipeline autoLevels(double clip) {
+        return then(image -> new ImagePipeline(pool).map(ImageStatistics.of(image, pool).autoLevels(clip)).apply(image));
+    }
+
+    public ImagePipeline autoContrast(double clip) {
+        return then(image -> new ImagePipeline(pool).map(ImageStatistics.of(image, pool).autoContrast(clip)).apply(image));
+    }
+
+    public ImagePipeline convolve(int[][] kernel, double factor) {
+        return then(image -> convolutionEngine.convolve(image, kernel, factor));
+    }
+
+    public ImagePipeline convolveSeparable(int[] kernel, double factor) {
+        return then(image -> convolutionEngine.convolveSeparable(image, kernel, kernel, factor));
+    }
+
+    /* runs the recorded operations on src, which is left untouched */
+    public PackedImage apply(PackedImage src) {
+        PackedImage current = src;
+        int i = 0;
+        while (i < stages.size()) {
+            if (stages.get(i) instanceof PixelOp) {
+                List<PixelOp> group = new ArrayList<>();
+                while (i < stages.size() && stages.get(i) instanceof PixelOp op) {
+                    group.add(op);
+                    i++;
+                }
+                // stage outputs belong to the pipeline and can be overwritten
+                PackedImage dst = current == src ? new PackedImage(src.getWidth(), src.getHeight()) : current;
+                if (dst.getPixels().length > 0) {
+                    pool.invoke(new FusedPass(current.getPixels(), dst.getPixels(), group.toArray(new PixelOp[0]),
+                            0, dst.getPixels().length));
+                }
+                current = dst;
+            } else {
+                @SuppressWarnings("unchecked")
+                UnaryOperator<PackedImage> stage = (UnaryOperator<PackedImage>) stages.get(i++);
+                current = stage.apply(current);
+            }
+        }
+        return current == src ? src.copy() : current;
+    }
+
+    /*
+     * runs the recorded operations over an off-heap image, modifying it in place; only
+     * point-wise operations can run there, full-frame stages need a heap image
+     */
+    public void applyInPlace(OffHeapImage image) {
+        PixelOp[] ops = new PixelOp[stages.size()];
+        for (int i = 0; i < ops.length; i++) {
+            if (!(stages.get(i) instanceof PixelOp op))
+                throw new IllegalStateException("Only point-wise operations can run on an off-heap image");
+            ops[i] = op;
+        }
+        image.apply(pool, ops);
+    }
+
+    /* copies src[lo..hi) to dst one tile at a time, running every operation over each tile */
+    private static class FusedPass extends RecursiveAction {
+
+        private final int[] src, dst;
+        private final PixelOp[] ops;
+        private final int lo, hi;
+
+        FusedPass(int[] src, int[] dst, PixelOp[] ops, int lo, int hi) {
+            this.src = src;
+            this.dst = dst;
+            this.ops = ops;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > TILE_SIZE * TILES_PER_TASK) {
+                // split on a tile boundary
+                int mid = lo + ((hi - lo) / 2 / TILE_SIZE) * TILE_SIZE;
+                invokeAll(new FusedPass(src, dst, ops, lo, mid), new FusedPass(src, dst, ops, mid, hi));
+                return;
+            }
+            for (int from = lo; from < hi; from += TILE_SIZE) {
+                int to = Math.min(from + TILE_SIZE, hi);
+                if (src != dst)
+                    System.arraycopy(src, from, dst, from, to - from);
+                for (PixelOp op : ops)
+                    op.apply(dst, from, to);
+            }
+        }
+    }
+}
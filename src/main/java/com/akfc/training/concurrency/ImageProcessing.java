@@ -6,105 +6,101 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.util.concurrent.Callable;
+import java.util.List;
 
 public class ImageProcessing {
 
-    private int[][][] image, tImage;
-    private int width, height, chunkSize;
-    private int originalWidth, originalHeight;
+    // source image and result of the last transform, see PackedImage for the pixel layout
+    private PackedImage image, tImage;
+    // source when backed by an off-heap image, transformed in place; image and tImage are then null
+    private OffHeapImage scan;
+    private int width, height;
+    private final ConvolutionEngine convolutionEngine = new ConvolutionEngine();
+    private final GeometryEngine geometryEngine = new GeometryEngine();
+    private final ResamplingEngine resamplingEngine = new ResamplingEngine();
+    private ImagePipeline pending;
 
     public ImageProcessing() {
         loadImageFromUrl("https://bellard.org/bpg/lena30.jpg");
     }
 
+    public ImageProcessing(BufferedImage buff) {
+        loadImageFromBuffer(buff);
+    }
+
+    public ImageProcessing(OffHeapImage scan) {
+        loadImageFromOffHeap(scan);
+    }
+
     public void loadImageFromFile(String fileName) {
         try {
             // Adjust this if your resources folder is located differently
             File file = new File(getClass().getClassLoader().getResource(fileName).getFile());
-            BufferedImage buff = ImageIO.read(file);
-            width = buff.getWidth();
-            height = buff.getHeight();
-            originalWidth = width;
-            originalHeight = height;
-            image = new int[height][width][3];
-            int px, red, green, blue;
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    px = buff.getRGB(j, i);
-                    red = (px >> 16) & 0xFF;
-                    green = (px >> 8) & 0xFF;
-                    blue = px & 0xFF;
-                    image[i][j][0] = red;
-                    image[i][j][1] = green;
-                    image[i][j][2] = blue;
-                }
-            }
-            tImage = image.clone();
+            loadImageFromBuffer(ImageIO.read(file));
         } catch (IOException ex) {
             ex.printStackTrace();
         }
     }
 
     public void loadImageFromBuffer(BufferedImage buff) {
-        width = buff.getWidth();
-        height = buff.getHeight();
-        originalWidth = width;
-        originalHeight = height;
-        image = new int[height][width][3];
-        int px, red, green, blue;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                px = buff.getRGB(j, i);
-                red = (px >> 16) & 0xFF;
-                green = (px >> 8) & 0xFF;
-                blue = px & 0xFF;
-                image[i][j][0] = red;
-                image[i][j][1] = green;
-                image[i][j][2] = blue;
-            }
-        }
-        tImage = image.clone();
+        load(PackedImage.fromBufferedImage(buff));
+    }
+
+    /*
+     * works on an off-heap image (e.g. a memory-mapped scan) without copying it: point
+     * operations and pipelines of them modify it in place, see getOffHeapImage(), and
+     * statistics are computed over it. The other transforms need a heap image and throw
+     * IllegalStateException, load a region or a reduced copy of the scan for them. The
+     * caller still owns the scan and closes it.
+     */
+    public void loadImageFromOffHeap(OffHeapImage scan) {
+        this.scan = scan;
+        image = null;
+        width = scan.getWidth();
+        height = scan.getHeight();
+        result(null);
+    }
+
+    /*
+     * loads a reduced heap copy of an off-heap image, its longer side being at most
+     * maxSide; the full resolution pixels never enter the heap
+     */
+    public void loadImageFromOffHeap(OffHeapImage scan, int maxSide) {
+        int factor = Math.max(1, Math.ceilDiv(Math.max(scan.getWidth(), scan.getHeight()), maxSide));
+        load(scan.downsample(factor));
+    }
+
+    /* loads a heap copy of the region [x, x + w) x [y, y + h) of an off-heap image at full resolution */
+    public void loadRegion(OffHeapImage scan, int x, int y, int w, int h) {
+        load(scan.region(x, y, w, h));
+    }
+
+    /* until the first transform, the result is the source itself */
+    private void load(PackedImage source) {
+        scan = null;
+        image = source;
+        width = image.getWidth();
+        height = image.getHeight();
+        result(source);
     }
 
     public void loadImageFromUrl(String url) {
         try {
             URL photoUrl = new URL(url);
             BufferedInputStream in = new BufferedInputStream(photoUrl.openStream());
-            BufferedImage buff = ImageIO.read(in);
-            width = buff.getWidth();
-            height = buff.getHeight();
-            originalWidth = width;
-            originalHeight = height;
-            image = new int[height][width][3];
-            int px, red, green, blue;
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    px = buff.getRGB(j, i);
-                    red = (px >> 16);
-                    green = (px >> 8) & 0xFF;
-                    blue = px & 0xFF;
-                    image[i][j][0] = red;
-                    image[i][j][1] = green;
-                    image[i][j][2] = blue;
-                }
-            }
-            tImage = image.clone();
+            loadImageFromBuffer(ImageIO.read(in));
         } catch (IOException ex) {
             ex.printStackTrace();
         }
     }
 
     public void transform() {
-        //TODO: call the transformImage method
         edgeDetection();
     }
 
     public void saveImage(String name) {
         File f = new File("src/main/resources/" + name + ".jpg");
         BufferedImage buff = applyTransformation();
-        width = originalWidth;
-        height = originalHeight;
         try {
             ImageIO.write(buff, "jpg", f);
         } catch (IOException ex) {
@@ -113,349 +109,246 @@ public class ImageProcessing {
     }
 
     public BufferedImage applyTransformation() {
-        BufferedImage buff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        int px, red, green, blue;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                red = tImage[i][j][0];
-                green = tImage[i][j][1];
-                blue = tImage[i][j][2];
-                px = (red << 16) | (green << 8) | blue;
-                buff.setRGB(j, i, px);
-            }
+        return getTransformedImage().toBufferedImage();
+    }
+
+    /* the result of the last transform, running the pending pipeline if any */
+    public PackedImage getTransformedImage() {
+        PackedImage source = heapSource();
+        if (pending != null) {
+            tImage = pending.apply(source);
+            pending = null;
         }
-        return buff;
+        return tImage;
     }
 
-    public void keepLayer(int layer) {
-        tImage = new int[height][width][3];
-        int i = 0, j = 0, k = 0;
-        while (i < height)
-        {
-            while (j < width) {
-                while (k < 3) {
-                    if (k == layer) tImage[i][j][k] = image[i][j][k];
-                    else tImage[i][j][k] = 0;
-                    k++;
-                }
-                k = 0;
-                j++;
-            }
-            j = 0;
-            i++;
+    /* the off-heap source, the pending pipeline if any run over it in place */
+    public OffHeapImage getOffHeapImage() {
+        if (scan == null)
+            throw new IllegalStateException("No off-heap image loaded");
+        if (pending != null) {
+            pending.applyInPlace(scan);
+            pending = null;
         }
+        return scan;
     }
 
-    public void dropLayer(int layer) {
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                for (int k = 0; k < 3; k++) {
-                    if (k != layer) tImage[i][j][k] = image[i][j][k];
-                    else tImage[i][j][k] = 0;
-                }
-            }
+    /*
+     * starts a chain of transforms on the source image, e.g. pipeline().grayScale().adjustContrast(2).invert().
+     * Nothing is computed before applyTransformation, saveImage or getTransformedImage is called, or
+     * getOffHeapImage for an off-heap source, which takes point-wise operations only.
+     */
+    public ImagePipeline pipeline() {
+        pending = new ImagePipeline();
+        return pending;
+    }
+
+    /* the heap source image, IllegalStateException when working on an off-heap image */
+    private PackedImage heapSource() {
+        if (scan != null)
+            throw new IllegalStateException("Transform needs a heap image, load a region() or downsample() of the "
+                    + scan.getWidth() + "x" + scan.getHeight() + " off-heap image first");
+        return image;
+    }
+
+    /* allocates a new result with the same size as the source and returns its pixels */
+    private int[] newTarget() {
+        return result(new PackedImage(width, height)).getPixels();
+    }
+
+    /* replaces the result of the previous transform, discarding any pending pipeline */
+    private PackedImage result(PackedImage transformed) {
+        pending = null;
+        tImage = transformed;
+        return transformed;
+    }
+
+    /* runs a single point-wise operation over the source, in parallel; in place for an off-heap source */
+    private void pointOp(PixelOp op) {
+        if (scan != null) {
+            pending = null;
+            new ImagePipeline().map(op).applyInPlace(scan);
+        } else {
+            result(new ImagePipeline().map(op).apply(image));
         }
     }
 
+    public void keepLayer(int layer) {
+        pointOp(PixelOps.keepLayer(layer));
+    }
+
+    public void dropLayer(int layer) {
+        pointOp(PixelOps.dropLayer(layer));
+    }
+
     public void flipVertically() {
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                tImage[i][width - j - 1] = image[i][j];
-            }
-        }
+        result(geometryEngine.flipVertically(heapSource()));
     }
 
     public void flipHorizontally() {
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                tImage[height - i - 1][j] = image[i][j];
-            }
-        }
+        result(geometryEngine.flipHorizontally(heapSource()));
     }
 
     public void grayScale() {
-        tImage = new int[height][width][3];
-        int gray;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                gray = (image[i][j][0] + image[i][j][1] + image[i][j][2]) / 3;
-                tImage[i][j][0] = gray;
-                tImage[i][j][1] = gray;
-                tImage[i][j][2] = gray;
-            }
-        }
+        pointOp(PixelOps.grayScale());
     }
 
     public int[] averageColor() {
-        int[] avg = new int[3];
-        int red = 0, green = 0, blue = 0;
-        int count = 0;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width;j++){
-                red += image[i][j][0];
-                green += image[i][j][1];
-                blue += image[i][j][2];
-                count++;
-            }
-        }
-        avg[0] = red / count;
-        avg[1] = green / count;
-        avg[2] = blue / count;
-        return avg;
+        return statistics().meanColor();
+    }
+
+    /* histograms and derived statistics of the source image, in one parallel pass */
+    public ImageStatistics statistics() {
+        return scan != null ? ImageStatistics.of(scan) : ImageStatistics.of(image);
+    }
+
+    /* stretches each channel so that all but clip of the pixels span [0, 255], e.g. clip = 0.005 */
+    public void autoLevels(double clip) {
+        pointOp(statistics().autoLevels(clip));
+    }
+
+    public void autoContrast(double clip) {
+        pointOp(statistics().autoContrast(clip));
     }
 
     public void cropCircle() {
-        tImage = new int[height][width][3];
+        int[] src = heapSource().getPixels(), dst = newTarget();
         int centerX = width / 2;
         int centerY = height / 2;
         int radius = Math.min(centerX, centerY);
+        int[] avg = averageColor();
+        int background = PackedImage.rgb(avg[0], avg[1], avg[2]);
         int x, y;
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++){
                 x = j - centerX;
                 y = i - centerY;
-                if (x * x + y * y < radius * radius) {
-                    tImage[i][j] = image[i][j];
-                } else {
-                    tImage[i][j] = averageColor();
-                }
+                dst[i * width + j] = x * x + y * y < radius * radius ? src[i * width + j] : background;
             }
         }
     }
 
     public void verticalShift(double value) {
-        tImage = new int[height][width][3];
+        int[] src = heapSource().getPixels(), dst = newTarget();
+        int shift = (int) (width * value);
         for (int i = 0; i < height; i++) {
+            int row = i * width;
             for (int j = 0; j < width; j++){
-                tImage[i][j] = image[i][(j + (int)(width * value)) % width];
+                dst[row + j] = src[row + Math.floorMod(j + shift, width)];
             }
         }
     }
 
     public void horizontalShift(double value) {
-        tImage = new int[height][width][3];
+        int[] src = heapSource().getPixels(), dst = newTarget();
+        int shift = (int) (height * value);
         for (int i = 0; i < height; i++) {
-            tImage[i] = image[(i + (int)(height * value)) % height];
+            System.arraycopy(src, Math.floorMod(i + shift, height) * width, dst, i * width, width);
         }
     }
 
+    /* the central half of the image, enlarged twice */
     public void zoomCenter() {
-        tImage = new int[height][width][3];
-        int ti = 0, tj = 0;
-        int val;
-        for (int i = height / 4; i < 3 * height / 4; i++) {
-            for (int j = width / 4; j < 3 * width / 4; j++) {
-                for (int k = 0; k < 3; k++) {
-                    val = image[i][j][k];
-                    tImage[ti][tj][k] = val;
-                    tImage[ti+1][tj][k] = val;
-                    tImage[ti][tj+1][k] = val;
-                    tImage[ti+1][tj+1][k] = val;
-                }
-                tj += 2;
-            }
-            tj = 0;
-            ti += 2;
-        }
+        zoomCenter(ResamplingEngine.Filter.BILINEAR);
+    }
+
+    public void zoomCenter(ResamplingEngine.Filter filter) {
+        int w = Math.max(1, width / 2), h = Math.max(1, height / 2);
+        result(resamplingEngine.resize(heapSource(), Math.min(width / 4, width - w), Math.min(height / 4, height - h), w, h,
+                width, height, filter));
     }
 
     public void sepia() {
-        tImage = new int[height][width][3];
-        int red, green, blue;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                tImage[i][j][0] = Math.min(255, (int) (0.393 * image[i][j][0] + 0.769 * image[i][j][1] + 0.189 * image[i][j][2]));
-                tImage[i][j][1] = Math.min(255, (int) (0.349 * image[i][j][0] + 0.686 * image[i][j][1] + 0.168 * image[i][j][2]));
-                tImage[i][j][2] = Math.min(255, (int) (0.272 * image[i][j][0] + 0.534 * image[i][j][1] + 0.131 * image[i][j][2]));
-            }
-        }
+        pointOp(PixelOps.sepia());
     }
 
     public void invert() {
-        tImage = new int[height][width][3];
-        int red, green, blue;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                tImage[i][j][0] = 255 - image[i][j][0];
-                tImage[i][j][1] = 255 - image[i][j][1];
-                tImage[i][j][2] = 255 - image[i][j][2];
-            }
-        }
+        pointOp(PixelOps.invert());
     }
 
     public void swap(int times) {
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                for (int k = 0; k < 3; k++) {
-                    tImage[i][j][k] = image[i][j][(k + times) % 3];
-                }
-            }
-        }
+        pointOp(PixelOps.swap(times));
     }
 
     public void adjustBrightness(int val) {
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                for (int k = 0; k < 3; k++) {
-                    tImage[i][j][k] = Math.max(0, Math.min(255, image[i][j][k] + val));
-                }
-            }
-        }
+        pointOp(PixelOps.adjustBrightness(val));
     }
 
     public void adjustContrast(int factor) {
-        tImage = new int[height][width][3];
-        int red, green, blue;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                tImage[i][j][0] = Math.min(255, Math.max(0, (image[i][j][0] - 128) * factor + 128));
-                tImage[i][j][1] = Math.min(255, Math.max(0, (image[i][j][1] - 128) * factor + 128));
-                tImage[i][j][2] = Math.min(255, Math.max(0, (image[i][j][2] - 128) * factor + 128));
-            }
-        }
+        pointOp(PixelOps.adjustContrast(factor));
     }
 
     public void oldStyle(int borderWidth, int offset, int brightness) {
-        tImage = new int[height][width][3];
+        int[] src = heapSource().getPixels(), dst = newTarget();
+        int px;
         for (int i = borderWidth; i < height - borderWidth; i += offset) {
             for (int j = borderWidth; j < width - borderWidth; j += offset) {
-                if (brightness > 0) {
-                    for (int k = 0; k < 3; k++) {
-                        tImage[i][j][k] = Math.min(image[i][j][k] + brightness, 255);
-                    }
-                } else {
-                    for (int k = 0; k < 3; k++) {
-                        tImage[i][j][k] = Math.max(image[i][j][k] + brightness, 0);
-                    }
-                }
-
+                px = src[i * width + j];
+                dst[i * width + j] = PackedImage.rgb(
+                        PackedImage.clamp(PackedImage.red(px) + brightness),
+                        PackedImage.clamp(PackedImage.green(px) + brightness),
+                        PackedImage.clamp(PackedImage.blue(px) + brightness));
             }
         }
     }
 
     public void rightRotate() {
-        tImage = new int[width][height][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                for (int k = 0; k < 3; k++) {
-                    tImage[j][height - i - 1][k] = image[i][j][k];
-                }
-            }
-        }
+        result(geometryEngine.rotateRight(heapSource()));
     }
 
     public void leftRotate() {
-        tImage = new int[width][height][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                for (int k = 0; k < 3; k++) {
-                    tImage[width - j - 1][i][k] = image[i][j][k];
-                }
-            }
-        }
+        result(geometryEngine.rotateLeft(heapSource()));
     }
 
+    /* counterclockwise rotation around the center with bilinear sampling, corners left black */
     public void rotate(int angle) {
-        tImage = new int[width][height][3];
-        double radians = Math.toRadians(angle);
-        double cos = Math.cos(radians);
-        double sin = Math.sin(radians);
-        int centerX = width / 2;
-        int centerY = height / 2;
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++){
-                int x = (int) (cos * (j - centerX) + sin * (i - centerY) + centerX);
-                int y = (int) (cos * (i - centerY) - sin * (j - centerX) + centerY);
-                if (x >= 0 && x < width && y >= 0 && y < height) {
-                    for (int k = 0; k < 3; k++) {
-                        tImage[y][x][k] = image[i][j][k];
-                    }
-                }
-            }
-        }
+        result(geometryEngine.rotate(heapSource(), angle));
+    }
+
+    public void transpose() {
+        result(geometryEngine.transpose(heapSource()));
     }
 
-    //Simple scale - more complex are required to avoid pixelation
-    //like bilinear or bicubic interpolation
     public void scale(double factor) {
-        height = (int) (height * factor);
-        width= (int) (width * factor);
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                for (int k = 0; k < 3; k++) {
-                    tImage[i][j][k] = image[(int) (i / factor)][(int) (j / factor)][k];
-                }
-            }
-        }
+        scale(factor, ResamplingEngine.Filter.BILINEAR);
+    }
+
+    public void scale(double factor, ResamplingEngine.Filter filter) {
+        result(resamplingEngine.resize(heapSource(), (int) (width * factor), (int) (height * factor), filter));
     }
 
     public void stretchVertically(double factor) {
-        height = (int) (height * factor);
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            int y = (int) (i / factor);
-            y = Math.min(y, originalHeight - 1); // Ensure we don't exceed original height
-            for (int j = 0; j < width; j++) {
-                for (int k = 0; k < 3; k++) {
-                    tImage[i][j][k] = image[y][j][k];
-                }
-            }
-        }
+        stretchVertically(factor, ResamplingEngine.Filter.BILINEAR);
+    }
+
+    public void stretchVertically(double factor, ResamplingEngine.Filter filter) {
+        result(resamplingEngine.resize(heapSource(), width, (int) (height * factor), filter));
     }
 
     public void stretchHorizontally(double factor) {
-        width = (int) (width * factor);
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int x = (int) (j / factor);
-                x = Math.min(x, originalWidth - 1); // Ensure we don't exceed original width
-                for (int k = 0; k < 3; k++) {
-                    tImage[i][j][k] = image[i][x][k];
-                }
-            }
-        }
+        stretchHorizontally(factor, ResamplingEngine.Filter.BILINEAR);
     }
 
-    private int compute(int i, int j, int k, int[][] kernel, double factor) {
-        int left, right, top, bottom;
-        top = (i == 0)? height - 1:i - 1;
-        bottom = (i == height - 1)? 0:i + 1;
-        left = (j == 0)? width - 1:j - 1;
-        right = (j == width - 1)? 0:j + 1;
-        int result = (int) ((kernel[1][1] * image[i][j][k] +
-                kernel[1][0] * image[i][left][k] +
-                kernel[0][0] * image[top][left][k] +
-                kernel[0][1] * image[top][j][k] +
-                kernel[0][2] * image[top][right][k] +
-                kernel[1][2] * image[i][right][k] +
-                kernel[2][2] * image[bottom][right][k] +
-                kernel[2][1] * image[bottom][j][k] +
-                kernel[2][0] * image[bottom][left][k]) * factor);
-        return Math.max(0, Math.min(result, 255));
+    public void stretchHorizontally(double factor, ResamplingEngine.Filter filter) {
+        result(resamplingEngine.resize(heapSource(), (int) (width * factor), height, filter));
+    }
+
+    /* one thumbnail per size, the longer side of each being that size */
+    public List<PackedImage> thumbnails(int... sizes) {
+        return resamplingEngine.thumbnails(heapSource(), ResamplingEngine.Filter.LANCZOS3, sizes);
     }
 
     private void convolution(int[][] kernel, double factor) {
-        //We assume that kernel is 3x3 matrix
-        tImage = new int[height][width][3];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                for (int k = 0; k < 3; k++) {
-                    tImage[i][j][k] = compute(i, j, k, kernel, factor);
-                }
-            }
-        }
+        result(convolutionEngine.convolve(heapSource(), kernel, factor));
+    }
+
+    private void separableConvolution(int[] kernel, double factor) {
+        result(convolutionEngine.convolveSeparable(heapSource(), kernel, kernel, factor));
     }
 
     public void blur() {
-        int[][] kernel = {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}};
-        convolution(kernel, 1.0 / 9);
+        // {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}}
+        separableConvolution(new int[]{1, 1, 1}, 1.0 / 9);
     }
 
     public void sharpen() {
@@ -469,8 +362,8 @@ public class ImageProcessing {
     }
 
     public void gaussianBlur() {
-        int[][] kernel = {{1, 2, 1}, {2, 4, 2}, {1, 2, 1}};
-        convolution(kernel, 1.0 / 16);
+        // {{1, 2, 1}, {2, 4, 2}, {1, 2, 1}}
+        separableConvolution(new int[]{1, 2, 1}, 1.0 / 16);
     }
 
     public void edgeDetection() {
@@ -478,16 +371,6 @@ public class ImageProcessing {
         convolution(kernel, 1.0);
     }
 
-    private class TransformImage implements Callable<int[][][]> {
-
-        @Override
-        public int[][][] call() throws Exception {
-            int[][][] res = null;
-            //TODO: compute res
-            return res;
-        }
-    }
-
     public static void main(String[] args) {
         ImageProcessing l = new ImageProcessing();
         l.transform();
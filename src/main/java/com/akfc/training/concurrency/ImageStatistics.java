@@ -0,0 +1,177 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Per-channel histograms of a packed RGB image and the statistics derived from them.
+ *
+ * Channels are 8 bit, so the three 256-bin histograms hold everything needed for the
+ * min, max, mean, variance and any percentile: the image is read once, by a
+ * ParallelReduce where every leaf counts its slice into its own histograms, added up
+ * when the leaves are combined. Nothing is shared while counting. All sums are longs,
+ * they do not overflow whatever the image size.
+ *
+ * Channel k is 0 for red, 1 for green and 2 for blue, as in PackedImage.channel.
+ */
+public final class ImageStatistics {
+
+    /* leaves count at least this many pixels, each one fills 6 KB of histograms */
+    static final int MIN_LEAF_PIXELS = 1 << 16;
+
+    // histogram of channel k in bins [k * 256, (k + 1) * 256)
+    private final long[] histograms;
+    private final long count;
+
+    private ImageStatistics(long[] histograms, long count) {
+        this.histograms = histograms;
+        this.count = count;
+    }
+
+    public static ImageStatistics of(PackedImage image) {
+        return of(image, ForkJoinPool.commonPool());
+    }
+
+    public static ImageStatistics of(PackedImage image, ForkJoinPool pool) {
+        int[] pixels = image.getPixels();
+        long[] histograms = ParallelReduce.reduce(pool, 0, pixels.length, MIN_LEAF_PIXELS, (lo, hi) -> {
+            long[] leaf = new long[3 * 256];
+            count(pixels, (int) lo, (int) hi, leaf);
+            return leaf;
+        }, ParallelReduce::addInto);
+        return new ImageStatistics(histograms, pixels.length);
+    }
+
+    /* one pass over an off-heap image, copied to the heap one tile at a time */
+    public static ImageStatistics of(OffHeapImage image, ForkJoinPool pool) {
+        long[] histograms = ParallelReduce.reduce(pool, 0, image.pixelCount(), MIN_LEAF_PIXELS, (lo, hi) -> {
+            long[] leaf = new long[3 * 256];
+            int[] tile = new int[OffHeapImage.TILE_SIZE];
+            for (long from = lo; from < hi; from += tile.length) {
+                int count = (int) Math.min(tile.length, hi - from);
+                image.read(from, tile, count);
+                count(tile, 0, count, leaf);
+            }
+            return leaf;
+        }, ParallelReduce::addInto);
+        return new ImageStatistics(histograms, image.pixelCount());
+    }
+
+    public static ImageStatistics of(OffHeapImage image) {
+        return of(image, ForkJoinPool.commonPool());
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /* copy of the 256 bins of channel k */
+    public long[] histogram(int k) {
+        long[] histogram = new long[256];
+        System.arraycopy(histograms, offset(k), histogram, 0, 256);
+        return histogram;
+    }
+
+    public int min(int k) {
+        return percentile(k, 0);
+    }
+
+    public int max(int k) {
+        int base = offset(k);
+        checkNotEmpty();
+        int v = 255;
+        while (histograms[base + v] == 0)
+            v--;
+        return v;
+    }
+
+    public double mean(int k) {
+        int base = offset(k);
+        checkNotEmpty();
+        long sum = 0;
+        for (int v = 0; v < 256; v++)
+            sum += v * histograms[base + v];
+        return (double) sum / count;
+    }
+
+    /* population variance */
+    public double variance(int k) {
+        int base = offset(k);
+        checkNotEmpty();
+        double mean = mean(k), sum = 0;
+        for (int v = 0; v < 256; v++)
+            sum += (v - mean) * (v - mean) * histograms[base + v];
+        return sum / count;
+    }
+
+    public double standardDeviation(int k) {
+        return Math.sqrt(variance(k));
+    }
+
+    /* smallest value v such that a fraction p of the pixels have channel k <= v, p in [0, 1] */
+    public int percentile(int k, double p) {
+        if (!(p >= 0 && p <= 1))
+            throw new IllegalArgumentException("Percentile must be in [0, 1], got " + p);
+        int base = offset(k);
+        checkNotEmpty();
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int v = 0; v < 255; v++) {
+            seen += histograms[base + v];
+            if (seen >= rank)
+                return v;
+        }
+        return 255;
+    }
+
+    public int median(int k) {
+        return percentile(k, 0.5);
+    }
+
+    /* mean color, each channel truncated */
+    public int[] meanColor() {
+        return new int[]{(int) mean(0), (int) mean(1), (int) mean(2)};
+    }
+
+    /*
+     * stretches every channel on its own so that its clip and 1 - clip percentiles become
+     * 0 and 255; removes color casts as well as widening the range
+     */
+    public PixelOp autoLevels(double clip) {
+        int[] lows = new int[3], highs = new int[3];
+        for (int k = 0; k < 3; k++) {
+            lows[k] = percentile(k, clip);
+            highs[k] = percentile(k, 1 - clip);
+        }
+        return PixelOps.levels(lows, highs);
+    }
+
+    /* same as autoLevels but with one range for the three channels, which keeps the hues */
+    public PixelOp autoContrast(double clip) {
+        int low = 255, high = 0;
+        for (int k = 0; k < 3; k++) {
+            low = Math.min(low, percentile(k, clip));
+            high = Math.max(high, percentile(k, 1 - clip));
+        }
+        return PixelOps.levels(new int[]{low, low, low}, new int[]{high, high, high});
+    }
+
+    private static int offset(int k) {
+        if (k < 0 || k > 2)
+            throw new IllegalArgumentException("Channel must be 0, 1 or 2, got " + k);
+        return k * 256;
+    }
+
+    private void checkNotEmpty() {
+        if (count == 0)
+            throw new IllegalStateException("No pixel in the image");
+    }
+
+    private static void count(int[] pixels, int from, int to, long[] histograms) {
+        for (int i = from; i < to; i++) {
+            int px = pixels[i];
+            histograms[(px >> 16) & 0xFF]++;
+            histograms[256 + ((px >> 8) & 0xFF)]++;
+            histograms[512 + (px & 0xFF)]++;
+        }
+    }
+}
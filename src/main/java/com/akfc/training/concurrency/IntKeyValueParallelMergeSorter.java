@@ -0,0 +1,133 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stable parallel merge sort of int keys carrying an int payload.
+ *
+ * Keys and values live in two parallel arrays which are permuted together, so an
+ * argsort is just a sort whose payload is the original index of each key.
+ */
+class IntKeyValueParallelMergeSorter extends AbstractParallelMergeSorter<IntKeyValueParallelMergeSorter.Pairs> {
+
+    /* keys and their payloads, both arrays have the same length */
+    static final class Pairs {
+        final int[] keys;
+        final int[] values;
+
+        Pairs(int[] keys, int[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    private final Pairs pairs;
+
+    public IntKeyValueParallelMergeSorter(int[] keys, int[] values) {
+        this(keys, values, ForkJoinPool.commonPool());
+    }
+
+    public IntKeyValueParallelMergeSorter(int[] keys, int[] values, ForkJoinPool pool) {
+        super(keys.length, pool);
+        if (keys.length != values.length)
+            throw new IllegalArgumentException(String.format("%d keys but %d values", keys.length, values.length));
+        this.pairs = new Pairs(keys, values);
+    }
+
+    /* sorts keys in place, values are moved along with their key; returns the keys */
+    public int[] sort() {
+        sort(pairs, new Pairs(pairs.keys.clone(), pairs.values.clone()));
+        return pairs.keys;
+    }
+
+    /* returns the indices that would sort keys, keys itself is left untouched */
+    public static int[] argsort(int[] keys) {
+        int[] indices = new int[keys.length];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = i;
+        new IntKeyValueParallelMergeSorter(keys.clone(), indices).sort();
+        return indices;
+    }
+
+    @Override
+    protected void sortSequential(Pairs src, Pairs dst, int lo, int hi) {
+        if (hi - lo <= SequentialMergeSorter.INSERTION_SORT_THRESHOLD) {
+            int[] keys = dst.keys, values = dst.values;
+            for (int i = lo + 1; i < hi; i++) {
+                int key = keys[i], value = values[i];
+                int j = i - 1;
+                while (j >= lo && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                values[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortSequential(dst, src, lo, mid);
+        sortSequential(dst, src, mid, hi);
+        if (src.keys[mid - 1] <= src.keys[mid]) {
+            copy(src, dst, lo, hi);
+        } else {
+            merge(src, lo, mid, mid, hi, dst, lo);
+        }
+    }
+
+    @Override
+    protected boolean inOrder(Pairs a, int i, int j) {
+        return a.keys[i] <= a.keys[j];
+    }
+
+    @Override
+    protected void copy(Pairs src, Pairs dst, int lo, int hi) {
+        System.arraycopy(src.keys, lo, dst.keys, lo, hi - lo);
+        System.arraycopy(src.values, lo, dst.values, lo, hi - lo);
+    }
+
+    @Override
+    protected void merge(Pairs src, int lo1, int hi1, int lo2, int hi2, Pairs dst, int d) {
+        int[] sk = src.keys, sv = src.values, dk = dst.keys, dv = dst.values;
+        int i = lo1, j = lo2;
+        while (i < hi1 && j < hi2) {
+            if (sk[j] < sk[i]) {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            } else {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+        }
+        int rest = hi1 - i;
+        System.arraycopy(sk, i, dk, d, rest);
+        System.arraycopy(sv, i, dv, d, rest);
+        System.arraycopy(sk, j, dk, d + rest, hi2 - j);
+        System.arraycopy(sv, j, dv, d + rest, hi2 - j);
+    }
+
+    @Override
+    protected int lowerBound(Pairs a, int lo, int hi, int pivot) {
+        int[] keys = a.keys;
+        int key = keys[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    protected int upperBound(Pairs a, int lo, int hi, int pivot) {
+        int[] keys = a.keys;
+        int key = keys[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
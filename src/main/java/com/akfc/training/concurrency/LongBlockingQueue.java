@@ -0,0 +1,151 @@
+package com.akfc.training.concurrency;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded lock-free queue of long values, the long counterpart of RingBuffer.
+ *
+ * Same sequence-numbered slots, same variants and wait strategies, but the values are
+ * stored in a long[] ring: nothing is boxed or allocated per element. A value is a
+ * plain array store made visible by the release of its slot's sequence number, and
+ * read after the acquire of it.
+ *
+ * Values move one at a time (offer, put, take) or in bulk between long[] batches and
+ * the ring (offerAll, putAll, drainTo, take into an array), a batch claiming all its
+ * slots with a single counter update and copied with at most two arraycopy calls.
+ * There is no null to signal an empty queue: the non-blocking reads are the drainTo()
+ * methods, which return how many values they copied.
+ */
+public final class LongBlockingQueue {
+
+    private final RingSequencer sequencer;
+    private final long[] elements;
+    private final RingSequencer.Transfer<long[]> store = this::store, load = this::load;
+
+    private LongBlockingQueue(RingSequencer sequencer) {
+        this.sequencer = sequencer;
+        elements = new long[sequencer.capacity()];
+    }
+
+    /* one producer thread, one consumer thread */
+    public static LongBlockingQueue spsc(int capacity) {
+        return spsc(capacity, WaitStrategy.PARK);
+    }
+
+    public static LongBlockingQueue spsc(int capacity, WaitStrategy waitStrategy) {
+        return new LongBlockingQueue(RingSequencer.spsc(capacity, waitStrategy));
+    }
+
+    /* any number of producers, one consumer thread */
+    public static LongBlockingQueue mpsc(int capacity) {
+        return mpsc(capacity, WaitStrategy.PARK);
+    }
+
+    public static LongBlockingQueue mpsc(int capacity, WaitStrategy waitStrategy) {
+        return new LongBlockingQueue(RingSequencer.mpsc(capacity, waitStrategy));
+    }
+
+    /* any number of producers and consumers */
+    public static LongBlockingQueue mpmc(int capacity) {
+        return mpmc(capacity, WaitStrategy.PARK);
+    }
+
+    public static LongBlockingQueue mpmc(int capacity, WaitStrategy waitStrategy) {
+        return new LongBlockingQueue(RingSequencer.mpmc(capacity, waitStrategy));
+    }
+
+    public int capacity() {
+        return sequencer.capacity();
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return sequencer.waitStrategy();
+    }
+
+    public boolean offer(long value) {
+        long pos = sequencer.claimWrite();
+        if (pos < 0)
+            return false;
+        publish(pos, value);
+        return true;
+    }
+
+    /* offers src[from, from + count) in order, as many as there is room for, and returns how many */
+    public int offerAll(long[] src, int from, int count) {
+        Objects.checkFromIndexSize(from, count, src.length);
+        return sequencer.write(src, from, count, store);
+    }
+
+    /* copies up to max values into dst[from, from + max) and returns how many, without waiting */
+    public int drainTo(long[] dst, int from, int max) {
+        Objects.checkFromIndexSize(from, max, dst.length);
+        return sequencer.read(dst, from, max, load);
+    }
+
+    public void put(long value) throws InterruptedException {
+        publish(sequencer.awaitWrite(), value);
+    }
+
+    public boolean offer(long value, long timeout, TimeUnit unit) throws InterruptedException {
+        long pos = sequencer.awaitWrite(System.nanoTime() + unit.toNanos(timeout));
+        if (pos < 0)
+            return false;
+        publish(pos, value);
+        return true;
+    }
+
+    /* offers the whole of src[from, from + count), waiting for room as needed */
+    public void putAll(long[] src, int from, int count) throws InterruptedException {
+        Objects.checkFromIndexSize(from, count, src.length);
+        sequencer.writeAll(src, from, count, store);
+    }
+
+    public long take() throws InterruptedException {
+        long pos = sequencer.awaitRead();
+        long value = elements[sequencer.index(pos)];
+        sequencer.free(pos);
+        return value;
+    }
+
+    /* waits for at least one value, then copies up to max of them into dst[from, from + max) */
+    public int take(long[] dst, int from, int max) throws InterruptedException {
+        if (max < 1)
+            throw new IllegalArgumentException("Cannot take fewer than one value, got " + max);
+        Objects.checkFromIndexSize(from, max, dst.length);
+        return sequencer.readSome(dst, from, max, load);
+    }
+
+    private void publish(long pos, long value) {
+        elements[sequencer.index(pos)] = value;
+        sequencer.publish(pos);
+    }
+
+    /* src[from, from + n) into the slots of [pos, pos + n), in two parts when they wrap around */
+    private int store(long[] src, int from, long pos, int n) {
+        int i = sequencer.index(pos), first = Math.min(n, elements.length - i);
+        System.arraycopy(src, from, elements, i, first);
+        System.arraycopy(src, from + first, elements, 0, n - first);
+        return n;
+    }
+
+    private int load(long[] dst, int from, long pos, int n) {
+        int i = sequencer.index(pos), first = Math.min(n, elements.length - i);
+        System.arraycopy(elements, i, dst, from, first);
+        System.arraycopy(elements, 0, dst, from + first, n - first);
+        return n;
+    }
+
+    /* claimed positions included, whether their values are published yet or not */
+    public int size() {
+        return sequencer.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+}
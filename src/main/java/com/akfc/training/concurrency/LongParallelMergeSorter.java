@@ -0,0 +1,90 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+
+/* parallel merge sort specialized for long[] (e.g. timestamps) */
+class LongParallelMergeSorter extends AbstractParallelMergeSorter<long[]> {
+
+    private long[] array;
+
+    public LongParallelMergeSorter(long[] array) {
+        this(array, ForkJoinPool.commonPool());
+    }
+
+    public LongParallelMergeSorter(long[] array, ForkJoinPool pool) {
+        super(array.length, pool);
+        this.array = array;
+    }
+
+    /* returns sorted array */
+    public long[] sort() {
+        sort(array, array.clone());
+        return array;
+    }
+
+    @Override
+    protected void sortSequential(long[] src, long[] dst, int lo, int hi) {
+        if (hi - lo <= SequentialMergeSorter.INSERTION_SORT_THRESHOLD) {
+            for (int i = lo + 1; i < hi; i++) {
+                long value = dst[i];
+                int j = i - 1;
+                while (j >= lo && dst[j] > value) {
+                    dst[j + 1] = dst[j];
+                    j--;
+                }
+                dst[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortSequential(dst, src, lo, mid);
+        sortSequential(dst, src, mid, hi);
+        if (src[mid - 1] <= src[mid]) {
+            copy(src, dst, lo, hi);
+        } else {
+            merge(src, lo, mid, mid, hi, dst, lo);
+        }
+    }
+
+    @Override
+    protected boolean inOrder(long[] a, int i, int j) {
+        return a[i] <= a[j];
+    }
+
+    @Override
+    protected void copy(long[] src, long[] dst, int lo, int hi) {
+        System.arraycopy(src, lo, dst, lo, hi - lo);
+    }
+
+    @Override
+    protected void merge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int d) {
+        int i = lo1, j = lo2;
+        while (i < hi1 && j < hi2) {
+            dst[d++] = src[j] < src[i] ? src[j++] : src[i++];
+        }
+        System.arraycopy(src, i, dst, d, hi1 - i);
+        System.arraycopy(src, j, dst, d + hi1 - i, hi2 - j);
+    }
+
+    @Override
+    protected int lowerBound(long[] a, int lo, int hi, int pivot) {
+        long key = a[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    protected int upperBound(long[] a, int lo, int hi, int pivot) {
+        long key = a[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
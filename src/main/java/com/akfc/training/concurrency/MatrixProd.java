@@ -1,10 +1,25 @@
 package com.akfc.training.concurrency;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MatrixProd {
 
+    /* cache blocking: a BLOCK_K x BLOCK_J tile of B (128 KB) stays in L2 while the rows of A stream through it */
+    static final int BLOCK_K = 128;
+    static final int BLOCK_J = 256;
+    /* rows of C handled by one parallel task */
+    static final int TILE_ROWS = 32;
+
     private int[][] A, B;
+    // row-major copies of A and B, element (i, j) of A is a[i * numColsA + j]
+    private final int[] a, b;
     private int numRowsA, numColsA, numRowsB, numColsB;
 
     public MatrixProd(int[][] A, int[][] B) {
@@ -15,20 +30,102 @@ public class MatrixProd {
         this.numRowsB = B.length;
         this.numColsB = B[0].length;
         if (numColsA != numRowsB)
-            throw new Error(String.format("Invalid dimensions; Cannot multiply %dx%d*%dx%d\n", numRowsA, numRowsB, numColsA, numColsB));
+            throw new Error(String.format("Invalid dimensions; Cannot multiply %dx%d*%dx%d\n", numRowsA, numColsA, numRowsB, numColsB));
+        this.a = flatten(A);
+        this.b = flatten(B);
     }
 
-    public int[][] seqProduct() {
+    static int[] flatten(int[][] matrix) {
+        int cols = matrix[0].length;
+        int[] flat = new int[matrix.length * cols];
+        for (int i = 0; i < matrix.length; i++)
+            System.arraycopy(matrix[i], 0, flat, i * cols, cols);
+        return flat;
+    }
+
+    static int[][] unflatten(int[] flat, int rows, int cols) {
+        int[][] matrix = new int[rows][];
+        for (int i = 0; i < rows; i++)
+            matrix[i] = Arrays.copyOfRange(flat, i * cols, (i + 1) * cols);
+        return matrix;
+    }
+
+    /* textbook i-j-k triple loop, walks B column-wise; kept as the baseline */
+    public int[][] naiveProduct() {
         int[][] C = new int[numRowsA][numColsB];
-        //TODO: perform computation
+        for (int i = 0; i < numRowsA; i++)
+            for (int j = 0; j < numColsB; j++) {
+                int sum = 0;
+                for (int k = 0; k < numColsA; k++)
+                    sum += A[i][k] * B[k][j];
+                C[i][j] = sum;
+            }
         return C;
     }
 
+    public int[][] seqProduct() {
+        int[] c = new int[numRowsA * numColsB];
+        multiply(0, numRowsA, c);
+        return unflatten(c, numRowsA, numColsB);
+    }
+
     public int[][] parProduct() {
-        int[][] C = new int[numRowsA][numColsB];
-        //TODO: create thread pool
-        // and merge partial results
-        return C;
+        return parProduct(Runtime.getRuntime().availableProcessors());
+    }
+
+    /* parallel product on a pool of threads threads, created and shut down by the call */
+    public int[][] parProduct(int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            return parProduct(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /* parallel product on the tasks of pool, which is left running */
+    public int[][] parProduct(ExecutorService pool) {
+        int[] c = new int[numRowsA * numColsB];
+        try {
+            // each task owns a disjoint band of rows of c, so no merge of partial results is needed
+            List<Future<?>> tiles = new ArrayList<>();
+            for (int row = 0; row < numRowsA; row += TILE_ROWS) {
+                int start = row, end = Math.min(row + TILE_ROWS, numRowsA);
+                tiles.add(pool.submit(() -> multiply(start, end, c)));
+            }
+            for (Future<?> tile : tiles)
+                tile.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return unflatten(c, numRowsA, numColsB);
+    }
+
+    /*
+     * accumulates rows [rowStart, rowEnd) of A*B into c.
+     * The i-k-j order broadcasts a[i][k] over a row of B, so the inner loop reads B
+     * and writes c with stride 1 and gets auto-vectorized by the JIT.
+     */
+    private void multiply(int rowStart, int rowEnd, int[] c) {
+        int n = numColsA, m = numColsB;
+        for (int kk = 0; kk < n; kk += BLOCK_K) {
+            int kEnd = Math.min(kk + BLOCK_K, n);
+            for (int jj = 0; jj < m; jj += BLOCK_J) {
+                int jEnd = Math.min(jj + BLOCK_J, m);
+                for (int i = rowStart; i < rowEnd; i++) {
+                    int cRow = i * m, aRow = i * n;
+                    for (int k = kk; k < kEnd; k++) {
+                        int aik = a[aRow + k];
+                        int bRow = k * m;
+                        for (int j = jj; j < jEnd; j++)
+                            c[cRow + j] += aik * b[bRow + j];
+                    }
+                }
+            }
+        }
     }
 
     public static int[][] generateRandomMatrix(int M, int N) {
@@ -49,12 +146,20 @@ public class MatrixProd {
         MatrixProd mp = new MatrixProd(A,B);
         long execTime = 0;
         long start = System.currentTimeMillis();
+        int[][] expected = mp.naiveProduct();
+        execTime = System.currentTimeMillis() - start;
+        System.out.format("Time elapsed for naive computation: %d\n", execTime);
+        start = System.currentTimeMillis();
         int[][] result = mp.seqProduct();
         execTime = System.currentTimeMillis() - start;
         System.out.format("Time elapsed for sequential computation: %d\n", execTime);
+        if (!Arrays.deepEquals(expected, result))
+            throw new Error("ERROR: sequential result does not match the naive one!");
         start = System.currentTimeMillis();
         result = mp.parProduct();
         execTime = System.currentTimeMillis() - start;
         System.out.format("Time elapsed for parallel computation: %d\n", execTime);
+        if (!Arrays.deepEquals(expected, result))
+            throw new Error("ERROR: parallel result does not match the naive one!");
     }
 }
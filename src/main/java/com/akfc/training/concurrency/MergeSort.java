@@ -2,10 +2,14 @@ package com.akfc.training.concurrency;
 
 import java.util.Arrays;
 import java.util.Random;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
 
 class SequentialMergeSorter {
 
+    /* ranges of at most this many elements are insertion sorted */
+    static final int INSERTION_SORT_THRESHOLD = 32;
+
     private int[] array;
 
     public SequentialMergeSorter(int[] array) {
@@ -14,43 +18,133 @@ class SequentialMergeSorter {
 
     /* returns sorted array */
     public int[] sort() {
-        //TODO
-        return null;
+        if (array.length > 1) {
+            // single scratch buffer for the whole sort, the recursion ping-pongs between both arrays
+            int[] scratch = array.clone();
+            sort(scratch, array, 0, array.length);
+        }
+        return array;
+    }
+
+    /* sorts dst[lo..hi) using src[lo..hi) as scratch; both ranges must hold the same values on entry */
+    static void sort(int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(dst, lo, hi);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sort(dst, src, lo, mid);
+        sort(dst, src, mid, hi);
+        merge(src, dst, lo, mid, hi);
     }
 
-    /* helper method that gets called recursively */
-    private void sort(int left, int right) {
-        //TODO
+    /* merges the sorted runs src[lo..mid) and src[mid..hi) into dst[lo..hi) */
+    static void merge(int[] src, int[] dst, int lo, int mid, int hi) {
+        if (src[mid - 1] <= src[mid]) {
+            // runs are already in order, no need to compare anything
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        merge(src, lo, mid, mid, hi, dst, lo);
     }
 
-    /* helper method to merge two sorted subarrays array[l..m] and array[m+1..r] into array */
-    private void merge(int left, int mid, int right) {
-        //TODO
+    /* stable merge of src[lo1..hi1) and src[lo2..hi2) into dst starting at index d */
+    static void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int d) {
+        int i = lo1, j = lo2;
+        while (i < hi1 && j < hi2) {
+            dst[d++] = src[j] < src[i] ? src[j++] : src[i++];
+        }
+        System.arraycopy(src, i, dst, d, hi1 - i);
+        System.arraycopy(src, j, dst, d + hi1 - i, hi2 - j);
+    }
+
+    static void insertionSort(int[] a, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            int value = a[i];
+            int j = i - 1;
+            while (j >= lo && a[j] > value) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
     }
 }
 
 /* parallel implementation of merge sort */
-class ParallelMergeSorter {
+class ParallelMergeSorter extends AbstractParallelMergeSorter<int[]> {
 
     private int[] array;
 
     public ParallelMergeSorter(int[] array) {
+        this(array, ForkJoinPool.commonPool());
+    }
+
+    public ParallelMergeSorter(int[] array, ForkJoinPool pool) {
+        super(array.length, pool);
         this.array = array;
     }
 
     /* returns sorted array */
     public int[] sort() {
-        //TODO
-        return null;
+        sort(array, array.clone());
+        return array;
     }
 
-    /* worker that gets called recursively */
-    private class ParallelWorker extends RecursiveAction {
+    /*
+     * sorts array[0..length) in place with scratch, which must be at least length long,
+     * as scratch space; allocates nothing, so callers sorting buffers in a loop can reuse
+     * the same scratch
+     */
+    public int[] sort(int length, int[] scratch) {
+        if (length < 0 || length > array.length || length > scratch.length)
+            throw new IllegalArgumentException(String.format("Cannot sort %d of %d values with a scratch of %d",
+                    length, array.length, scratch.length));
+        System.arraycopy(array, 0, scratch, 0, length);
+        sort(array, scratch, length);
+        return array;
+    }
+
+    @Override
+    protected void sortSequential(int[] src, int[] dst, int lo, int hi) {
+        SequentialMergeSorter.sort(src, dst, lo, hi);
+    }
 
-        @Override
-        protected void compute() {
-            //TODO
+    @Override
+    protected boolean inOrder(int[] a, int i, int j) {
+        return a[i] <= a[j];
+    }
+
+    @Override
+    protected void copy(int[] src, int[] dst, int lo, int hi) {
+        System.arraycopy(src, lo, dst, lo, hi - lo);
+    }
+
+    @Override
+    protected void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int d) {
+        SequentialMergeSorter.merge(src, lo1, hi1, lo2, hi2, dst, d);
+    }
+
+    @Override
+    protected int lowerBound(int[] a, int lo, int hi, int pivot) {
+        int key = a[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    protected int upperBound(int[] a, int lo, int hi, int pivot) {
+        int key = a[pivot];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) lo = mid + 1;
+            else hi = mid;
         }
+        return lo;
     }
 }
 public class MergeSort {
@@ -66,7 +160,8 @@ public class MergeSort {
 
     public static void main(String[] args) {
         final int NUM_EVAL_RUNS = 5;
-        final int[] input = generateRandomArray(100_000_000);
+        final int length = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+        final int[] input = generateRandomArray(length);
 
         System.out.println("Evaluating Sequential Implementation...");
         SequentialMergeSorter sms = new SequentialMergeSorter(Arrays.copyOf(input, input.length));
@@ -99,6 +194,33 @@ public class MergeSort {
         System.out.format("Average Parallel Time: %.1f ms\n", parallelTime);
         System.out.format("Speedup: %.2f \n", sequentialTime/parallelTime);
         System.out.format("Efficiency: %.2f%%\n", 100*(sequentialTime/parallelTime)/Runtime.getRuntime().availableProcessors());
+
+        // compare throughput against the non comparison based sort and the JDK one
+        System.out.println("Evaluating Parallel Radix Sort...");
+        double radixTime = averageTime(input, NUM_EVAL_RUNS, parallelResult, a -> new ParallelRadixSorter(a).sort());
+        System.out.println("Evaluating Arrays.parallelSort...");
+        double jdkTime = averageTime(input, NUM_EVAL_RUNS, parallelResult, a -> {
+            Arrays.parallelSort(a);
+            return a;
+        });
+        System.out.format("Throughput Sequential Merge Sort: %.1f M ints/s\n", input.length / sequentialTime / 1000);
+        System.out.format("Throughput Parallel Merge Sort: %.1f M ints/s\n", input.length / parallelTime / 1000);
+        System.out.format("Throughput Parallel Radix Sort: %.1f M ints/s\n", input.length / radixTime / 1000);
+        System.out.format("Throughput Arrays.parallelSort: %.1f M ints/s\n", input.length / jdkTime / 1000);
+    }
+
+    /* average time in ms of sorting a fresh copy of input, after checking the sorter against expected */
+    static double averageTime(int[] input, int runs, int[] expected, UnaryOperator<int[]> sorter) {
+        if (!Arrays.equals(expected, sorter.apply(Arrays.copyOf(input, input.length))))
+            throw new Error("ERROR: result does not match the merge sort one!");
+        double time = 0;
+        for (int i = 0; i < runs; i++) {
+            int[] copy = Arrays.copyOf(input, input.length);
+            long start = System.currentTimeMillis();
+            sorter.apply(copy);
+            time += System.currentTimeMillis() - start;
+        }
+        return time / runs;
     }
 
 }
@@ -0,0 +1,270 @@
+package com.akfc.training.concurrency;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * RGB image whose pixels live outside of the Java heap, in a MemorySegment.
+ *
+ * Same layout as PackedImage (row-major 0x00RRGGBB ints) but with long indices,
+ * so the size is not limited by the maximum array length and, more importantly for
+ * batch workers, a scan of several hundred megapixels is never copied, scanned or
+ * moved by the garbage collector. A raw file is a dump of the segment: width *
+ * height little-endian ints, no header. map() maps such a file directly, the OS
+ * then pages the image in and out as needed.
+ *
+ * The segment is allocated from (or mapped into) a shared arena, so ForkJoin workers
+ * can all access it. Images created by allocate() and map() own their arena and
+ * release the memory on close(); the ones built on a caller's arena live as long
+ * as that arena.
+ *
+ * Processing works on tiles: each worker copies TILE_SIZE pixels into a heap array,
+ * runs the PixelOps over it and copies them back, which keeps every PixelOp usable
+ * unchanged. Full-frame transforms go through region() or downsample(), which
+ * produce heap images small enough for the other engines.
+ */
+public final class OffHeapImage implements AutoCloseable {
+
+    /* file and memory layout of a pixel */
+    static final ValueLayout.OfInt LAYOUT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    /* pixels copied to the heap at a time, 16 KB */
+    static final int TILE_SIZE = 4096;
+    /* tiles per ForkJoin leaf task */
+    static final int TILES_PER_TASK = 16;
+
+    private final int width, height;
+    private final MemorySegment segment;
+    private final Arena arena; // null when the arena belongs to the caller
+
+    private OffHeapImage(int width, int height, MemorySegment segment, Arena arena) {
+        this.width = width;
+        this.height = height;
+        this.segment = segment;
+        this.arena = arena;
+    }
+
+    private static long byteSize(int width, int height) {
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException(String.format("Invalid image size %dx%d", width, height));
+        return (long) width * height * LAYOUT.byteSize();
+    }
+
+    /* zero-filled (black) image in its own shared arena */
+    public static OffHeapImage allocate(int width, int height) {
+        Arena arena = Arena.ofShared();
+        try {
+            return new OffHeapImage(width, height, arena.allocate(byteSize(width, height), LAYOUT.byteAlignment()), arena);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /* zero-filled image allocated from arena, which should be shared to process it in parallel */
+    public static OffHeapImage allocate(Arena arena, int width, int height) {
+        return new OffHeapImage(width, height, arena.allocate(byteSize(width, height), LAYOUT.byteAlignment()), null);
+    }
+
+    public static OffHeapImage copyOf(PackedImage image) {
+        OffHeapImage copy = allocate(image.getWidth(), image.getHeight());
+        MemorySegment.copy(image.getPixels(), 0, copy.segment, LAYOUT, 0, image.getPixels().length);
+        return copy;
+    }
+
+    /*
+     * maps a raw file of width * height pixels; with writable, changes to the image
+     * are written back to the file, otherwise the image must not be modified
+     */
+    public static OffHeapImage map(Path file, int width, int height, boolean writable) throws IOException {
+        long size = byteSize(width, height);
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = writable ? FileChannel.open(file, READ, WRITE) : FileChannel.open(file, READ)) {
+            if (channel.size() != size)
+                throw new IOException(String.format("%s has %d bytes, a %dx%d image needs %d", file, channel.size(),
+                        width, height, size));
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            return new OffHeapImage(width, height, channel.map(mode, 0, size, arena), arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /* writes the pixels as a raw file that map() can read */
+    public void writeRaw(Path file) throws IOException {
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            channel.map(FileChannel.MapMode.READ_WRITE, 0, segment.byteSize(), arena).copyFrom(segment);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long pixelCount() {
+        return (long) width * height;
+    }
+
+    /* the backing segment, pixel (x, y) at index y * width + x of LAYOUT */
+    public MemorySegment getSegment() {
+        return segment;
+    }
+
+    public int get(int x, int y) {
+        return segment.getAtIndex(LAYOUT, (long) y * width + x);
+    }
+
+    public void set(int x, int y, int rgb) {
+        segment.setAtIndex(LAYOUT, (long) y * width + x, rgb);
+    }
+
+    /* copies pixels [from, from + count) into dst[0, count) */
+    void read(long from, int[] dst, int count) {
+        MemorySegment.copy(segment, LAYOUT, from * LAYOUT.byteSize(), dst, 0, count);
+    }
+
+    /* heap copy of the region [x, x + w) x [y, y + h) */
+    public PackedImage region(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height)
+            throw new IllegalArgumentException(String.format("Region %d,%d %dx%d is outside of a %dx%d image",
+                    x, y, w, h, width, height));
+        int[] pixels = new int[Math.multiplyExact(w, h)];
+        for (int i = 0; i < h; i++)
+            MemorySegment.copy(segment, LAYOUT, ((long) (y + i) * width + x) * LAYOUT.byteSize(), pixels, i * w, w);
+        return new PackedImage(w, h, pixels);
+    }
+
+    public PackedImage toPackedImage() {
+        return region(0, 0, width, height);
+    }
+
+    /* heap image factor times smaller in each dimension, each pixel the mean of a factor x factor block */
+    public PackedImage downsample(int factor) {
+        return downsample(factor, ForkJoinPool.commonPool());
+    }
+
+    public PackedImage downsample(int factor, ForkJoinPool pool) {
+        if (factor < 1)
+            throw new IllegalArgumentException("Downsampling factor must be positive, got " + factor);
+        PackedImage dst = new PackedImage(Math.ceilDiv(width, factor), Math.ceilDiv(height, factor));
+        if (dst.getPixels().length > 0)
+            pool.invoke(new DownsampleBand(dst, factor, 0, dst.getHeight()));
+        return dst;
+    }
+
+    /* runs ops over every pixel, in place, one heap tile at a time */
+    public void apply(PixelOp... ops) {
+        apply(ForkJoinPool.commonPool(), ops);
+    }
+
+    public void apply(ForkJoinPool pool, PixelOp... ops) {
+        if (pixelCount() > 0)
+            pool.invoke(new TilePass(ops, 0, pixelCount()));
+    }
+
+    @Override
+    public void close() {
+        if (arena != null)
+            arena.close();
+    }
+
+    private class TilePass extends RecursiveAction {
+
+        private final PixelOp[] ops;
+        private final long lo, hi;
+
+        TilePass(PixelOp[] ops, long lo, long hi) {
+            this.ops = ops;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > (long) TILE_SIZE * TILES_PER_TASK) {
+                // split on a tile boundary
+                long mid = lo + ((hi - lo) / 2 / TILE_SIZE) * TILE_SIZE;
+                invokeAll(new TilePass(ops, lo, mid), new TilePass(ops, mid, hi));
+                return;
+            }
+            int[] tile = new int[TILE_SIZE];
+            for (long from = lo; from < hi; from += TILE_SIZE) {
+                int count = (int) Math.min(TILE_SIZE, hi - from);
+                read(from, tile, count);
+                for (PixelOp op : ops)
+                    op.apply(tile, 0, count);
+                MemorySegment.copy(tile, 0, segment, LAYOUT, from * LAYOUT.byteSize(), count);
+            }
+        }
+    }
+
+    /* computes rows [lo, hi) of a downsampled image */
+    private class DownsampleBand extends RecursiveAction {
+
+        private final PackedImage dst;
+        private final int factor, lo, hi;
+
+        DownsampleBand(PackedImage dst, int factor, int lo, int hi) {
+            this.dst = dst;
+            this.factor = factor;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1 && (long) (hi - lo) * factor * width > (long) TILE_SIZE * TILES_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new DownsampleBand(dst, factor, lo, mid), new DownsampleBand(dst, factor, mid, hi));
+                return;
+            }
+            int w = dst.getWidth();
+            int[] out = dst.getPixels(), row = new int[width];
+            long[] reds = new long[w], greens = new long[w], blues = new long[w];
+            for (int i = lo; i < hi; i++) {
+                Arrays.fill(reds, 0);
+                Arrays.fill(greens, 0);
+                Arrays.fill(blues, 0);
+                int rows = Math.min(factor, height - i * factor);
+                for (int r = 0; r < rows; r++) {
+                    read((long) (i * factor + r) * width, row, width);
+                    for (int j = 0, x = 0; j < w; j++) {
+                        int red = 0, green = 0, blue = 0;
+                        for (int end = Math.min(x + factor, width); x < end; x++) {
+                            int px = row[x];
+                            red += (px >> 16) & 0xFF;
+                            green += (px >> 8) & 0xFF;
+                            blue += px & 0xFF;
+                        }
+                        reds[j] += red;
+                        greens[j] += green;
+                        blues[j] += blue;
+                    }
+                }
+                for (int j = 0; j < w; j++) {
+                    long n = (long) rows * Math.min(factor, width - j * factor);
+                    out[i * w + j] = PackedImage.rgb((int) ((reds[j] + n / 2) / n), (int) ((greens[j] + n / 2) / n),
+                            (int) ((blues[j] + n / 2) / n));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.akfc.training.concurrency;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+
+/**
+ * RGB image stored as one row-major int[] of packed 0x00RRGGBB pixels.
+ *
+ * Compared to an int[height][width][3] array this is 4 bytes per pixel instead of
+ * 12 plus three array headers, pixels are contiguous in memory and a copy is a
+ * single array copy. Pixel (x, y) lives at index y * width + x.
+ */
+public final class PackedImage {
+
+    private final int width, height;
+    private final int[] pixels;
+
+    public PackedImage(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    public PackedImage(int width, int height, int[] pixels) {
+        if (width < 0 || height < 0 || pixels.length != width * height)
+            throw new IllegalArgumentException(String.format("%d pixels cannot make a %dx%d image", pixels.length, width, height));
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /*
+     * converts buff, reading its raster in bulk for the usual decoded layouts
+     * (int RGB/ARGB and 3-byte BGR) and falling back on the color model otherwise
+     */
+    public static PackedImage fromBufferedImage(BufferedImage buff) {
+        int w = buff.getWidth(), h = buff.getHeight();
+        int[] pixels = new int[w * h];
+        WritableRaster raster = buff.getRaster();
+        switch (isPlainRaster(raster) ? buff.getType() : BufferedImage.TYPE_CUSTOM) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                for (int i = 0; i < pixels.length; i++)
+                    pixels[i] = data[i] & 0xFFFFFF;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, b = 0; i < pixels.length; i++, b += 3)
+                    pixels[i] = ((data[b + 2] & 0xFF) << 16) | ((data[b + 1] & 0xFF) << 8) | (data[b] & 0xFF);
+            }
+            default -> {
+                buff.getRGB(0, 0, w, h, pixels, 0, w);
+                for (int i = 0; i < pixels.length; i++)
+                    pixels[i] &= 0xFFFFFF;
+            }
+        }
+        return new PackedImage(w, h, pixels);
+    }
+
+    /* whether the raster data starts at 0 and rows are contiguous, i.e. it is not a sub-image */
+    private static boolean isPlainRaster(WritableRaster raster) {
+        return raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getNumBanks() == 1 && raster.getDataBuffer().getOffset() == 0;
+    }
+
+    /* TYPE_INT_RGB image whose raster is filled with a single array copy */
+    public BufferedImage toBufferedImage() {
+        BufferedImage buff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) buff.getRaster().getDataBuffer()).getData();
+        System.arraycopy(pixels, 0, data, 0, pixels.length);
+        return buff;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /* the backing array, row-major, shared with this image */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int get(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    public void set(int x, int y, int rgb) {
+        pixels[y * width + x] = rgb;
+    }
+
+    /* deep copy */
+    public PackedImage copy() {
+        return new PackedImage(width, height, pixels.clone());
+    }
+
+    public static int red(int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    public static int green(int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    public static int blue(int rgb) {
+        return rgb & 0xFF;
+    }
+
+    /* channel k of rgb, 0 being red, 1 green and 2 blue */
+    public static int channel(int rgb, int k) {
+        return (rgb >> (16 - 8 * k)) & 0xFF;
+    }
+
+    /* packs channels that are already in [0, 255] */
+    public static int rgb(int red, int green, int blue) {
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    public static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,79 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Power of two number of long cells, each alone on its cache lines, shared by the
+ * striped counters.
+ *
+ * A cell is one long every PAD longs of an AtomicLongArray, i.e. 128 bytes apart: two
+ * lines, as the adjacent-line prefetcher pulls lines in pairs. The first PAD longs are
+ * left unused, so no cell shares a line with the array header or a neighbouring object.
+ *
+ * Every thread has a home cell, the same one for all instances. A thread that fails a
+ * CAS on its home cell is moved to another random cell for good, so threads sharing a
+ * cell spread out after their first collision, as with LongAdder.
+ */
+final class PaddedCells {
+
+    static final int PAD = 16;
+    /* cells for a counter created with the default number of stripes */
+    static final int DEFAULT_STRIPES = nextPowerOfTwo(2 * Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(
+            () -> new int[]{mix(Thread.currentThread().threadId())});
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    PaddedCells(int stripes) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("Number of stripes must be positive, got " + stripes);
+        stripes = nextPowerOfTwo(stripes);
+        cells = new AtomicLongArray((stripes + 1) * PAD);
+        mask = stripes - 1;
+    }
+
+    static int nextPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static int mix(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    int stripes() {
+        return mask + 1;
+    }
+
+    /* adds x to a cell of the calling thread and returns the index of that cell */
+    int add(long x) {
+        int[] probe = PROBE.get();
+        int i = ((probe[0] & mask) + 1) * PAD;
+        long v = cells.get(i);
+        if (!cells.compareAndSet(i, v, v + x)) {
+            // contended: move to another cell, and do not fail twice
+            probe[0] = ThreadLocalRandom.current().nextInt();
+            i = ((probe[0] & mask) + 1) * PAD;
+            cells.getAndAdd(i, x);
+        }
+        return i;
+    }
+
+    long get(int i) {
+        return cells.get(i);
+    }
+
+    long getAndSet(int i, long v) {
+        return cells.getAndSet(i, v);
+    }
+
+    /* sum of the cells, exact only if no add runs meanwhile */
+    long sum() {
+        long sum = 0;
+        for (int i = PAD; i < cells.length(); i += PAD)
+            sum += cells.get(i);
+        return sum;
+    }
+}
@@ -0,0 +1,132 @@
+package com.akfc.training.concurrency;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel LSD radix sort for int[], an alternative to ParallelMergeSorter.
+ *
+ * Keys are sorted one byte at a time, least significant first, in four stable
+ * passes. The array is cut into one block per worker; for every pass each block
+ * builds its own histogram, a prefix sum over (digit, block) gives every block
+ * its private write positions, and the blocks then scatter concurrently without
+ * any synchronization. The sign bit of the last digit is flipped so that negative
+ * values come first. Passes where every key has the same digit are skipped.
+ */
+class ParallelRadixSorter {
+
+    private static final int RADIX_BITS = 8;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    private static final int MASK = BUCKETS - 1;
+    private static final int PASSES = Integer.SIZE / RADIX_BITS;
+
+    /* blocks smaller than this are not worth a separate histogram */
+    static final int MIN_BLOCK_SIZE = 1 << 14;
+
+    private int[] array;
+    private final ForkJoinPool pool;
+    private final int blocks;
+    private final int[][] counts;
+
+    public ParallelRadixSorter(int[] array) {
+        this(array, ForkJoinPool.commonPool());
+    }
+
+    public ParallelRadixSorter(int[] array, ForkJoinPool pool) {
+        this.array = array;
+        this.pool = pool;
+        this.blocks = Math.max(1, Math.min(pool.getParallelism(), array.length / MIN_BLOCK_SIZE));
+        this.counts = new int[blocks][BUCKETS];
+    }
+
+    /* returns sorted array */
+    public int[] sort() {
+        if (array.length < 2)
+            return array;
+        int[] src = array, dst = new int[array.length];
+        for (int pass = 0; pass < PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+            // the sign bit lives in the last digit, flipping it orders negative values first
+            int flip = pass == PASSES - 1 ? 1 << (RADIX_BITS - 1) : 0;
+            pool.invoke(new BlockTask(src, dst, 0, blocks, shift, flip, false));
+            if (!toOffsets()) {
+                continue;
+            }
+            pool.invoke(new BlockTask(src, dst, 0, blocks, shift, flip, true));
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, array.length);
+        }
+        return array;
+    }
+
+    /*
+     * turns the per-block histograms into per-block write offsets, in place.
+     * Returns false when a single digit holds every key, meaning the pass can be skipped.
+     */
+    private boolean toOffsets() {
+        int offset = 0;
+        for (int digit = 0; digit < BUCKETS; digit++) {
+            int total = 0;
+            for (int b = 0; b < blocks; b++) {
+                int count = counts[b][digit];
+                counts[b][digit] = offset;
+                offset += count;
+                total += count;
+            }
+            if (total == array.length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int blockStart(int block) {
+        return (int) ((long) array.length * block / blocks);
+    }
+
+    /* runs the histogram or scatter phase of the current pass for blocks [from..to) */
+    private class BlockTask extends RecursiveAction {
+
+        private final int[] src, dst;
+        private final int from, to, shift, flip;
+        private final boolean scatter;
+
+        BlockTask(int[] src, int[] dst, int from, int to, int shift, int flip, boolean scatter) {
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+            this.shift = shift;
+            this.flip = flip;
+            this.scatter = scatter;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BlockTask(src, dst, from, mid, shift, flip, scatter),
+                        new BlockTask(src, dst, mid, to, shift, flip, scatter));
+                return;
+            }
+            int[] count = counts[from];
+            int lo = blockStart(from), hi = blockStart(from + 1);
+            if (scatter) {
+                for (int i = lo; i < hi; i++) {
+                    int value = src[i];
+                    dst[count[((value >>> shift) & MASK) ^ flip]++] = value;
+                }
+            } else {
+                Arrays.fill(count, 0);
+                for (int i = lo; i < hi; i++) {
+                    count[((src[i] >>> shift) & MASK) ^ flip]++;
+                }
+            }
+        }
+    }
+}
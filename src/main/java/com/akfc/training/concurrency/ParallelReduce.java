@@ -0,0 +1,284 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Parallel reduction of an index range [from, to) on a ForkJoin pool.
+ *
+ * The caller gives a leaf reducer, computing the result of a whole sub-range with a
+ * plain loop, and an associative combiner; the combiner is always applied in index
+ * order, so it need not be commutative (any monoid works). long and double results
+ * are kept in primitive fields from the leaves to the root, nothing is boxed.
+ *
+ * Granularity adapts to the load instead of a fixed threshold: a task keeps halving
+ * its range and forking the right half only while its own queue holds few unclaimed
+ * tasks (getSurplusQueuedTaskCount), i.e. while other workers may be idle, and
+ * never below max(minGrain, size / (16 * parallelism)). On an idle pool ranges get
+ * split until every worker has work; on a busy one, or once enough tasks are
+ * queued, the rest of the range is reduced in a single leaf.
+ *
+ * e.g. the sum of an int[]:
+ *     ParallelReduce.reduceLong(pool, 0, a.length, (lo, hi) -> { long s = 0; for (...) s += a[i]; return s; }, Long::sum)
+ */
+public final class ParallelReduce {
+
+    /* leaves smaller than this are not worth a task for cheap element-wise work */
+    public static final int DEFAULT_MIN_GRAIN = 1 << 10;
+    /* a task stops forking when more than this many of its tasks are waiting to be stolen */
+    static final int MAX_SURPLUS = 3;
+
+    private ParallelReduce() {
+    }
+
+    @FunctionalInterface
+    public interface LongRangeReducer {
+        long reduce(long from, long to);
+    }
+
+    @FunctionalInterface
+    public interface DoubleRangeReducer {
+        double reduce(long from, long to);
+    }
+
+    @FunctionalInterface
+    public interface RangeReducer<R> {
+        R reduce(long from, long to);
+    }
+
+    public static long reduceLong(ForkJoinPool pool, long from, long to, LongRangeReducer leaf, LongBinaryOperator combiner) {
+        return reduceLong(pool, from, to, DEFAULT_MIN_GRAIN, leaf, combiner);
+    }
+
+    public static long reduceLong(ForkJoinPool pool, long from, long to, long minGrain,
+                                  LongRangeReducer leaf, LongBinaryOperator combiner) {
+        LongReduce root = new LongReduce(null, from, to, grain(pool, from, to, minGrain), leaf, combiner);
+        pool.invoke(root);
+        return root.result;
+    }
+
+    public static double reduceDouble(ForkJoinPool pool, long from, long to, DoubleRangeReducer leaf,
+                                      DoubleBinaryOperator combiner) {
+        return reduceDouble(pool, from, to, DEFAULT_MIN_GRAIN, leaf, combiner);
+    }
+
+    public static double reduceDouble(ForkJoinPool pool, long from, long to, long minGrain,
+                                      DoubleRangeReducer leaf, DoubleBinaryOperator combiner) {
+        DoubleReduce root = new DoubleReduce(null, from, to, grain(pool, from, to, minGrain), leaf, combiner);
+        pool.invoke(root);
+        return root.result;
+    }
+
+    /* for results that are objects anyway, e.g. histograms or custom accumulators */
+    public static <R> R reduce(ForkJoinPool pool, long from, long to, RangeReducer<R> leaf, BinaryOperator<R> combiner) {
+        return reduce(pool, from, to, DEFAULT_MIN_GRAIN, leaf, combiner);
+    }
+
+    public static <R> R reduce(ForkJoinPool pool, long from, long to, long minGrain,
+                               RangeReducer<R> leaf, BinaryOperator<R> combiner) {
+        Reduce<R> root = new Reduce<>(null, from, to, grain(pool, from, to, minGrain), leaf, combiner);
+        pool.invoke(root);
+        return root.result;
+    }
+
+    private static long grain(ForkJoinPool pool, long from, long to, long minGrain) {
+        if (from > to)
+            throw new IllegalArgumentException(String.format("Invalid range [%d, %d)", from, to));
+        return Math.max(Math.max(1, minGrain), (to - from) / ((long) pool.getParallelism() << 4));
+    }
+
+    public static long sum(int[] a) {
+        return sum(ForkJoinPool.commonPool(), a);
+    }
+
+    public static long sum(ForkJoinPool pool, int[] a) {
+        return reduceLong(pool, 0, a.length, (lo, hi) -> {
+            long sum = 0;
+            for (int i = (int) lo; i < hi; i++)
+                sum += a[i];
+            return sum;
+        }, Long::sum);
+    }
+
+    public static double sum(ForkJoinPool pool, double[] a) {
+        return reduceDouble(pool, 0, a.length, (lo, hi) -> {
+            double sum = 0;
+            for (int i = (int) lo; i < hi; i++)
+                sum += a[i];
+            return sum;
+        }, Double::sum);
+    }
+
+    public static int min(ForkJoinPool pool, int[] a) {
+        checkNotEmpty(a.length);
+        return (int) reduceLong(pool, 0, a.length, (lo, hi) -> {
+            int min = Integer.MAX_VALUE;
+            for (int i = (int) lo; i < hi; i++)
+                min = Math.min(min, a[i]);
+            return min;
+        }, Math::min);
+    }
+
+    public static int max(ForkJoinPool pool, int[] a) {
+        checkNotEmpty(a.length);
+        return (int) reduceLong(pool, 0, a.length, (lo, hi) -> {
+            int max = Integer.MIN_VALUE;
+            for (int i = (int) lo; i < hi; i++)
+                max = Math.max(max, a[i]);
+            return max;
+        }, Math::max);
+    }
+
+    /* counts of each value of a, which must all be in [0, bins) */
+    public static long[] histogram(ForkJoinPool pool, int[] a, int bins) {
+        return reduce(pool, 0, a.length, (lo, hi) -> {
+            long[] counts = new long[bins];
+            for (int i = (int) lo; i < hi; i++)
+                counts[a[i]]++;
+            return counts;
+        }, ParallelReduce::addInto);
+    }
+
+    /* adds right into left and returns left, to combine count arrays */
+    public static long[] addInto(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++)
+            left[i] += right[i];
+        return left;
+    }
+
+    private static void checkNotEmpty(int length) {
+        if (length == 0)
+            throw new IllegalArgumentException("Cannot reduce an empty array");
+    }
+
+    /*
+     * reduces [lo, hi): forks right halves while the pool looks hungry, reduces what is left
+     * of the range as one leaf, then folds in the forked halves from left to right
+     */
+    private abstract static class ReduceTask<T extends ReduceTask<T>> extends RecursiveAction {
+
+        final T next; // task forked just before this one by the same parent, to its right
+        final long lo, hi, grain;
+
+        ReduceTask(T next, long lo, long hi, long grain) {
+            this.next = next;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        /* task reducing [lo, hi), forked after next */
+        abstract T split(T next, long lo, long hi);
+
+        abstract void leaf(long lo, long hi);
+
+        /* this = this (+) right */
+        abstract void combine(T right);
+
+        @Override
+        protected final void compute() {
+            long l = lo, h = hi;
+            T forked = null;
+            while (h - l > grain && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+                long mid = (l + h) >>> 1;
+                forked = split(forked, mid, h);
+                forked.fork();
+                h = mid;
+            }
+            leaf(l, h);
+            // the most recent fork is the closest to [l, h)
+            for (T right = forked; right != null; right = right.next) {
+                right.join();
+                combine(right);
+            }
+        }
+    }
+
+    private static final class LongReduce extends ReduceTask<LongReduce> {
+
+        private final LongRangeReducer reducer;
+        private final LongBinaryOperator combiner;
+        long result;
+
+        LongReduce(LongReduce next, long lo, long hi, long grain, LongRangeReducer reducer, LongBinaryOperator combiner) {
+            super(next, lo, hi, grain);
+            this.reducer = reducer;
+            this.combiner = combiner;
+        }
+
+        @Override
+        LongReduce split(LongReduce next, long lo, long hi) {
+            return new LongReduce(next, lo, hi, grain, reducer, combiner);
+        }
+
+        @Override
+        void leaf(long lo, long hi) {
+            result = reducer.reduce(lo, hi);
+        }
+
+        @Override
+        void combine(LongReduce right) {
+            result = combiner.applyAsLong(result, right.result);
+        }
+    }
+
+    private static final class DoubleReduce extends ReduceTask<DoubleReduce> {
+
+        private final DoubleRangeReducer reducer;
+        private final DoubleBinaryOperator combiner;
+        double result;
+
+        DoubleReduce(DoubleReduce next, long lo, long hi, long grain, DoubleRangeReducer reducer,
+                     DoubleBinaryOperator combiner) {
+            super(next, lo, hi, grain);
+            this.reducer = reducer;
+            this.combiner = combiner;
+        }
+
+        @Override
+        DoubleReduce split(DoubleReduce next, long lo, long hi) {
+            return new DoubleReduce(next, lo, hi, grain, reducer, combiner);
+        }
+
+        @Override
+        void leaf(long lo, long hi) {
+            result = reducer.reduce(lo, hi);
+        }
+
+        @Override
+        void combine(DoubleReduce right) {
+            result = combiner.applyAsDouble(result, right.result);
+        }
+    }
+
+    private static final class Reduce<R> extends ReduceTask<Reduce<R>> {
+
+        private final RangeReducer<R> reducer;
+        private final BinaryOperator<R> combiner;
+        R result;
+
+        Reduce(Reduce<R> next, long lo, long hi, long grain, RangeReducer<R> reducer, BinaryOperator<R> combiner) {
+            super(next, lo, hi, grain);
+            this.reducer = reducer;
+            this.combiner = combiner;
+        }
+
+        @Override
+        Reduce<R> split(Reduce<R> next, long lo, long hi) {
+            return new Reduce<>(next, lo, hi, grain, reducer, combiner);
+        }
+
+        @Override
+        void leaf(long lo, long hi) {
+            result = reducer.reduce(lo, hi);
+        }
+
+        @Override
+        void combine(Reduce<R> right) {
+            result = combiner.apply(result, right.result);
+        }
+    }
+}
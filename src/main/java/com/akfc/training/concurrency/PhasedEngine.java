@@ -0,0 +1,191 @@
+package com.akfc.training.concurrency;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Runs an iterative computation as a sequence of phases on a fixed set of workers.
+ *
+ * In every phase each worker computes on its share of the data and accumulates into
+ * a partial result of its own, created once per worker and reused from phase to
+ * phase: no lock, no shared write. The workers then meet at a barrier, whose action,
+ * run by the last worker to arrive while the others wait, merges the partials,
+ * updates the shared state for the next phase and decides whether to go on. The
+ * barrier orders everything: what the workers wrote before arriving is visible to the
+ * merge, what the merge wrote is visible to the workers of the next phase.
+ *
+ * The cost of a phase beyond the work itself is one barrier crossing. Phaser spins a
+ * little before it blocks, which suits short phases; CyclicBarrier always goes through
+ * its lock and condition, it is there for comparison (see PhasedEngineBenchmark).
+ *
+ * A worker or merge that throws stops the computation at the end of the current phase
+ * and run() rethrows the exception.
+ */
+public final class PhasedEngine {
+
+    public enum Sync { PHASER, CYCLIC_BARRIER }
+
+    /* the share of worker in phase, accumulated into partial */
+    @FunctionalInterface
+    public interface PhaseTask<P> {
+        void compute(int worker, int phase, P partial);
+    }
+
+    /* merges the partials of phase, partials.get(w) being the one of worker w; false to stop */
+    @FunctionalInterface
+    public interface PhaseMerge<P> {
+        boolean merge(int phase, List<P> partials);
+    }
+
+    private final int workers;
+    private final Sync sync;
+
+    public PhasedEngine(int workers) {
+        this(workers, Sync.PHASER);
+    }
+
+    public PhasedEngine(int workers, Sync sync) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Number of workers must be positive, got " + workers);
+        this.workers = workers;
+        this.sync = Objects.requireNonNull(sync);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /*
+     * runs phases 0, 1... until merge returns false or maxPhases phases are done and
+     * returns the number of phases done; partial(w) creates the partial of worker w
+     */
+    public <P> int run(int maxPhases, IntFunction<? extends P> partial, PhaseTask<? super P> task,
+                       PhaseMerge<P> merge) throws InterruptedException {
+        if (maxPhases < 0)
+            throw new IllegalArgumentException("Number of phases must not be negative, got " + maxPhases);
+        if (maxPhases == 0)
+            return 0;
+        Run<P> run = new Run<>(maxPhases, partial, task, merge);
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            threads[w] = new Thread(() -> run.work(worker), "phased-worker-" + w);
+            threads[w].start();
+        }
+        InterruptedException interrupted = null;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // stops at the end of the current phase, the workers are still waited for
+                    run.cancelled = true;
+                    interrupted = e;
+                }
+            }
+        }
+        if (interrupted != null)
+            throw interrupted;
+        Throwable failure = run.failure.get();
+        if (failure instanceof RuntimeException e)
+            throw e;
+        if (failure instanceof Error e)
+            throw e;
+        return run.completed;
+    }
+
+    /* state of one run() */
+    private final class Run<P> {
+
+        private final int maxPhases;
+        private final IntFunction<? extends P> partial;
+        private final PhaseTask<? super P> task;
+        private final PhaseMerge<P> merge;
+        private final Object[] partials = new Object[workers];
+        private final List<P> view;
+        private final Phaser phaser;
+        private final CyclicBarrier barrier;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean cancelled;
+        // written by the barrier action only, read after crossing the barrier
+        private int completed;
+        private boolean done;
+
+        @SuppressWarnings("unchecked")
+        Run(int maxPhases, IntFunction<? extends P> partial, PhaseTask<? super P> task, PhaseMerge<P> merge) {
+            this.maxPhases = maxPhases;
+            this.partial = partial;
+            this.task = task;
+            this.merge = merge;
+            view = (List<P>) Arrays.asList(partials);
+            if (sync == Sync.PHASER) {
+                phaser = new Phaser(workers) {
+                    @Override
+                    protected boolean onAdvance(int phase, int parties) {
+                        return advance();
+                    }
+                };
+                barrier = null;
+            } else {
+                phaser = null;
+                barrier = new CyclicBarrier(workers, this::advance);
+            }
+        }
+
+        /* barrier action: merges the phase that just ended, true when it was the last one */
+        private boolean advance() {
+            if (failure.get() == null && !cancelled) {
+                try {
+                    done = !merge.merge(completed, view);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+            completed++;
+            done |= failure.get() != null || cancelled || completed >= maxPhases;
+            return done;
+        }
+
+        void work(int worker) {
+            P own = null;
+            try {
+                own = partial.apply(worker);
+                partials[worker] = own;
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            }
+            for (int phase = 0; ; phase++) {
+                // a failed worker keeps arriving so that the others are not left waiting
+                if (failure.get() == null) {
+                    try {
+                        task.compute(worker, phase, own);
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                if (!await())
+                    return;
+            }
+        }
+
+        /* crosses the barrier, false once the computation is over */
+        private boolean await() {
+            if (phaser != null)
+                return phaser.arriveAndAwaitAdvance() >= 0 && !done;
+            try {
+                barrier.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                // nothing should interrupt the workers, whose barrier is private to this run
+                failure.compareAndSet(null, new IllegalStateException("Phase barrier broken", e));
+                return false;
+            }
+            return !done;
+        }
+    }
+}
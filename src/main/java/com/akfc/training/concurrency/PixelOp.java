@@ -0,0 +1,13 @@
+package com.akfc.training.concurrency;
+
+/**
+ * Point-wise transform of packed RGB pixels, applied in place on a slice of a pixel array.
+ *
+ * Working on slices rather than single pixels keeps each operation a tight loop of its
+ * own, and lets ImagePipeline run several operations back to back on a cache-resident tile.
+ */
+@FunctionalInterface
+public interface PixelOp {
+
+    void apply(int[] pixels, int from, int to);
+}
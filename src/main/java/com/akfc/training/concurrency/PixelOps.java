@@ -0,0 +1,164 @@
+package com.akfc.training.concurrency;
+
+import static com.akfc.training.concurrency.PackedImage.*;
+
+/*
+ * point-wise transforms used by ImageProcessing and ImagePipeline.
+ * grayScale, sepia, invert, adjustBrightness and adjustContrast run the VectorPixelOps
+ * kernels when the Vector API is available; both versions share the fixed-point
+ * weights below and give identical results.
+ */
+public final class PixelOps {
+
+    /* weights are scaled by 2^FIXED_POINT_SHIFT */
+    static final int FIXED_POINT_SHIFT = 16;
+    /* (s * THIRD) >> 16 == s / 3 for every sum of three channels, s <= 765 */
+    static final int THIRD = 21846;
+    /* rows give red, green and blue as weights of the input red, green and blue */
+    static final int[][] SEPIA = {
+            {25756, 50397, 12386},  // 0.393, 0.769, 0.189
+            {22872, 44958, 11010},  // 0.349, 0.686, 0.168
+            {17826, 34996, 8585}    // 0.272, 0.534, 0.131
+    };
+
+    private static final boolean VECTORIZED = isVectorized();
+
+    private PixelOps() {
+    }
+
+    private static boolean isVectorized() {
+        if (!ArrayKernels.isVectorApiAvailable())
+            return false;
+        try {
+            VectorPixelOps.invert();
+            return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /* bits of channel layer in a packed pixel, 0 being red, 1 green and 2 blue */
+    static int layerMask(int layer) {
+        return layer >= 0 && layer < 3 ? 0xFF << (16 - 8 * layer) : 0;
+    }
+
+    public static PixelOp grayScale() {
+        return VECTORIZED ? VectorPixelOps.grayScale() : scalarGrayScale();
+    }
+
+    public static PixelOp sepia() {
+        return VECTORIZED ? VectorPixelOps.sepia() : scalarSepia();
+    }
+
+    public static PixelOp invert() {
+        return VECTORIZED ? VectorPixelOps.invert() : scalarInvert();
+    }
+
+    public static PixelOp adjustBrightness(int val) {
+        return VECTORIZED ? VectorPixelOps.adjustBrightness(val) : scalarAdjustBrightness(val);
+    }
+
+    public static PixelOp adjustContrast(int factor) {
+        return VECTORIZED ? VectorPixelOps.adjustContrast(factor) : scalarAdjustContrast(factor);
+    }
+
+    public static PixelOp keepLayer(int layer) {
+        int mask = layerMask(layer);
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++)
+                pixels[i] &= mask;
+        };
+    }
+
+    public static PixelOp dropLayer(int layer) {
+        int mask = ~layerMask(layer) & 0xFFFFFF;
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++)
+                pixels[i] &= mask;
+        };
+    }
+
+    static PixelOp scalarGrayScale() {
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int px = pixels[i];
+                pixels[i] = ((red(px) + green(px) + blue(px)) * THIRD >>> FIXED_POINT_SHIFT) * 0x010101;
+            }
+        };
+    }
+
+    static PixelOp scalarSepia() {
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int red = red(pixels[i]), green = green(pixels[i]), blue = blue(pixels[i]);
+                pixels[i] = rgb(weighted(red, green, blue, SEPIA[0]),
+                        weighted(red, green, blue, SEPIA[1]),
+                        weighted(red, green, blue, SEPIA[2]));
+            }
+        };
+    }
+
+    private static int weighted(int red, int green, int blue, int[] weights) {
+        return Math.min(255, (red * weights[0] + green * weights[1] + blue * weights[2]) >>> FIXED_POINT_SHIFT);
+    }
+
+    static PixelOp scalarInvert() {
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++)
+                // 255 - c for every channel
+                pixels[i] = ~pixels[i] & 0xFFFFFF;
+        };
+    }
+
+    public static PixelOp swap(int times) {
+        int r = times % 3, g = (1 + times) % 3, b = (2 + times) % 3;
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int px = pixels[i];
+                pixels[i] = rgb(channel(px, r), channel(px, g), channel(px, b));
+            }
+        };
+    }
+
+    static PixelOp scalarAdjustBrightness(int val) {
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int px = pixels[i];
+                pixels[i] = rgb(clamp(red(px) + val), clamp(green(px) + val), clamp(blue(px) + val));
+            }
+        };
+    }
+
+    static PixelOp scalarAdjustContrast(int factor) {
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int px = pixels[i];
+                pixels[i] = rgb(clamp((red(px) - 128) * factor + 128),
+                        clamp((green(px) - 128) * factor + 128),
+                        clamp((blue(px) - 128) * factor + 128));
+            }
+        };
+    }
+
+    /*
+     * maps channel k linearly from [lows[k], highs[k]] to [0, 255], values outside being
+     * clamped; a channel with highs[k] <= lows[k] is left unchanged. Looks up a table per channel.
+     */
+    public static PixelOp levels(int[] lows, int[] highs) {
+        int[][] tables = new int[3][256];
+        for (int k = 0; k < 3; k++) {
+            int low = lows[k], range = highs[k] - low, shift = 16 - 8 * k;
+            for (int v = 0; v < 256; v++) {
+                int mapped = range <= 0 ? v : clamp(((v - low) * 255 * 2 + range) / (2 * range));
+                tables[k][v] = mapped << shift;
+            }
+        }
+        int[] reds = tables[0], greens = tables[1], blues = tables[2];
+        return (pixels, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int px = pixels[i];
+                pixels[i] = reds[red(px)] | greens[green(px)] | blues[blue(px)];
+            }
+        };
+    }
+}
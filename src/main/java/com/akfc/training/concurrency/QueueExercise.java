@@ -1,28 +1,80 @@
 package com.akfc.training.concurrency;
 
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-
 class Producer extends Thread {
 
+    static final int COUNT = 1_000_000;
+    static final int BATCH = 256;
+    static final int END = -1;
+
+    private final IntBlockingQueue queue;
+
+    Producer(IntBlockingQueue queue) {
+        this.queue = queue;
+    }
+
     @Override
     public void run() {
-        //TODO: produce data
+        try {
+            //values are produced in batches, then handed over in one go
+            int[] batch = new int[BATCH];
+            for (int i = 0; i < COUNT; i += BATCH) {
+                int n = Math.min(BATCH, COUNT - i);
+                for (int k = 0; k < n; k++) {
+                    batch[k] = i + k;
+                }
+                queue.putAll(batch, 0, n);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
 
 class Consumer extends Thread {
 
+    private final IntBlockingQueue queue;
+    long sum = 0;
+
+    Consumer(IntBlockingQueue queue) {
+        this.queue = queue;
+    }
+
     @Override
     public void run() {
-        //TODO: consume data
+        try {
+            int[] batch = new int[Producer.BATCH];
+            while (true) {
+                int n = queue.take(batch, 0, batch.length);
+                for (int k = 0; k < n; k++) {
+                    if (batch[k] == Producer.END) {
+                        return;
+                    }
+                    sum += batch[k];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
 public class QueueExercise {
 
-    public static void main(String[] args) {
-        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(5);
-        //TODO: instanciate and start producer and consumer
+    public static void main(String[] args) throws InterruptedException {
+        //one producer and one consumer of ints: a single producer single consumer ring of ints,
+        //no Integer is allocated on the way
+        //Question: what changes with a BlockingQueue<Integer>, e.g. new ArrayBlockingQueue<>(1024)
+        //or RingBuffer.spsc(1024), and put / take one value at a time?
+        IntBlockingQueue queue = IntBlockingQueue.spsc(1024, WaitStrategy.YIELD);
+        Producer producer = new Producer(queue);
+        Consumer consumer = new Consumer(queue);
+        long start = System.currentTimeMillis();
+        producer.start();
+        consumer.start();
+        producer.join();
+        consumer.join();
+        long duration = System.currentTimeMillis() - start;
+        System.out.println(consumer.sum + " consumed in " + duration + " ms");
     }
 }
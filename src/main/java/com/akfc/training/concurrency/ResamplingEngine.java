@@ -0,0 +1,321 @@
+package com.akfc.training.concurrency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel resampling of packed RGB images with separable filters.
+ *
+ * Scaling n source pixels to m along one axis is described by a WeightTable: for
+ * every output index, the first source index and a fixed number of normalized
+ * weights. Tables only depend on (n, m, filter), so they are computed once and
+ * cached; rows and columns of every image with that size reuse them. When
+ * shrinking, the filter is stretched by the scale factor so every source pixel
+ * contributes (no aliasing); pixels beyond an edge replicate the edge.
+ *
+ * An output row is computed from a weighted sum of source rows (vertical pass into
+ * three float planes, one source row wide) followed by the horizontal pass, so the
+ * only allocations are the destination and one row of scratch per task. Output
+ * rows are split into bands processed by a ForkJoin pool.
+ *
+ * For thumbnails, pyramid() halves the image repeatedly with a 2x2 box filter;
+ * thumbnails() starts every size from the smallest level still larger than it, so
+ * several sizes cost little more than decoding the image once.
+ */
+public class ResamplingEngine {
+
+    public enum Filter {
+        NEAREST(0.5),
+        BILINEAR(1),
+        /* Catmull-Rom cubic, a = -0.5 */
+        BICUBIC(2),
+        LANCZOS3(3);
+
+        /* support of the kernel, in source pixels at scale 1 */
+        final double radius;
+
+        Filter(double radius) {
+            this.radius = radius;
+        }
+
+        double weight(double x) {
+            x = Math.abs(x);
+            return switch (this) {
+                case NEAREST -> x < 0.5 ? 1 : 0;
+                case BILINEAR -> x < 1 ? 1 - x : 0;
+                case BICUBIC -> x < 1 ? (1.5 * x - 2.5) * x * x + 1
+                        : x < 2 ? ((-0.5 * x + 2.5) * x - 4) * x + 2 : 0;
+                case LANCZOS3 -> x < 1e-9 ? 1 : x < 3 ? sinc(x) * sinc(x / 3) : 0;
+            };
+        }
+
+        private static double sinc(double x) {
+            return Math.sin(Math.PI * x) / (Math.PI * x);
+        }
+    }
+
+    /* bands smaller than this do not amortize the task overhead */
+    static final int MIN_BAND_ROWS = 8;
+    /* the table cache is dropped when it grows beyond this many entries */
+    static final int MAX_CACHED_TABLES = 64;
+
+    private final ForkJoinPool pool;
+    private final Map<TableKey, WeightTable> tables = new ConcurrentHashMap<>();
+
+    public ResamplingEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ResamplingEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private record TableKey(int srcSize, int dstSize, Filter filter) {
+    }
+
+    /* output index i reads source indices [start[i], start[i] + taps) with weights[i * taps ..] */
+    static final class WeightTable {
+        final int taps;
+        final int[] start;
+        final float[] weights;
+
+        WeightTable(int taps, int[] start, float[] weights) {
+            this.taps = taps;
+            this.start = start;
+            this.weights = weights;
+        }
+    }
+
+    WeightTable table(int srcSize, int dstSize, Filter filter) {
+        if (tables.size() > MAX_CACHED_TABLES)
+            tables.clear();
+        return tables.computeIfAbsent(new TableKey(srcSize, dstSize, filter), ResamplingEngine::computeTable);
+    }
+
+    private static WeightTable computeTable(TableKey key) {
+        int n = key.srcSize(), m = key.dstSize();
+        Filter filter = key.filter();
+        if (n == m) {
+            int[] start = new int[m];
+            Arrays.setAll(start, i -> i);
+            float[] weights = new float[m];
+            Arrays.fill(weights, 1);
+            return new WeightTable(1, start, weights);
+        }
+        double scale = (double) n / m;
+        // shrinking stretches the filter over scale source pixels, nearest never does
+        double stretch = filter == Filter.NEAREST ? 1 : Math.max(1, scale);
+        double support = filter.radius * stretch;
+        int taps = filter == Filter.NEAREST ? 1 : Math.min(n, (int) Math.ceil(2 * support) + 1);
+        int[] start = new int[m];
+        float[] weights = new float[m * taps];
+        double[] row = new double[taps];
+        for (int i = 0; i < m; i++) {
+            double center = (i + 0.5) * scale;
+            if (filter == Filter.NEAREST) {
+                start[i] = Math.min(n - 1, (int) center);
+                weights[i * taps] = 1;
+                continue;
+            }
+            // sample positions j + 0.5, indices beyond the edges fold onto the edge pixels
+            int lo = (int) Math.floor(center - support), hi = (int) Math.ceil(center + support);
+            int first = Math.min(Math.max(lo, 0), n - taps);
+            Arrays.fill(row, 0);
+            double total = 0;
+            for (int j = lo; j <= hi; j++) {
+                double w = filter.weight((j + 0.5 - center) / stretch);
+                if (w != 0) {
+                    int index = Math.min(Math.max(j, 0), n - 1) - first;
+                    if (index >= 0 && index < taps) {
+                        row[index] += w;
+                        total += w;
+                    }
+                }
+            }
+            start[i] = first;
+            for (int k = 0; k < taps; k++)
+                weights[i * taps + k] = (float) (total == 0 ? (k == 0 ? 1 : 0) : row[k] / total);
+        }
+        return new WeightTable(taps, start, weights);
+    }
+
+    public PackedImage resize(PackedImage src, int width, int height, Filter filter) {
+        return resize(src, 0, 0, src.getWidth(), src.getHeight(), width, height, filter);
+    }
+
+    /* resizes the region [x, x + w) x [y, y + h) of src to width x height */
+    public PackedImage resize(PackedImage src, int x, int y, int w, int h, int width, int height, Filter filter) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > src.getWidth() || y + h > src.getHeight())
+            throw new IllegalArgumentException(String.format("Region %d,%d %dx%d is outside of a %dx%d image",
+                    x, y, w, h, src.getWidth(), src.getHeight()));
+        if (width < 0 || height < 0 || ((w == 0 || h == 0) && width * height > 0))
+            throw new IllegalArgumentException(String.format("Cannot resize %dx%d to %dx%d", w, h, width, height));
+        PackedImage dst = new PackedImage(width, height);
+        if (width > 0 && height > 0) {
+            pool.invoke(new ResizeBand(src, x, y, w, dst, table(w, width, filter), table(h, height, filter),
+                    0, height));
+        }
+        return dst;
+    }
+
+    /* src followed by levels halved images, each half the size of the previous one */
+    public List<PackedImage> pyramid(PackedImage src, int levels) {
+        List<PackedImage> pyramid = new ArrayList<>(levels + 1);
+        pyramid.add(src);
+        for (int level = 0; level < levels; level++)
+            pyramid.add(halve(pyramid.get(level)));
+        return pyramid;
+    }
+
+    /* 2x2 box filter, the last row or column of an odd size is averaged with itself */
+    public PackedImage halve(PackedImage src) {
+        if (src.getPixels().length == 0)
+            return src.copy();
+        PackedImage dst = new PackedImage(Math.ceilDiv(src.getWidth(), 2), Math.ceilDiv(src.getHeight(), 2));
+        pool.invoke(new HalveBand(src, dst, 0, dst.getHeight()));
+        return dst;
+    }
+
+    /*
+     * one image per requested size, that size being the length of its longer side; the
+     * aspect ratio is kept. Each is resized with filter from the smallest pyramid level
+     * at least as large, levels being computed once for all the sizes.
+     */
+    public List<PackedImage> thumbnails(PackedImage src, Filter filter, int... maxSides) {
+        List<PackedImage> levels = new ArrayList<>(List.of(src));
+        List<PackedImage> thumbnails = new ArrayList<>(maxSides.length);
+        for (int size : maxSides) {
+            if (size <= 0)
+                throw new IllegalArgumentException("Thumbnail size must be positive, got " + size);
+            // smallest level whose longer side is still at least size
+            int level = 0;
+            while (longerSide(levels.get(level)) / 2 >= size) {
+                if (level + 1 == levels.size())
+                    levels.add(halve(levels.get(level)));
+                level++;
+            }
+            PackedImage from = levels.get(level);
+            double scale = (double) size / longerSide(src);
+            int width = Math.max(1, (int) Math.round(src.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(src.getHeight() * scale));
+            thumbnails.add(resize(from, width, height, filter));
+        }
+        return thumbnails;
+    }
+
+    private static int longerSide(PackedImage image) {
+        return Math.max(image.getWidth(), image.getHeight());
+    }
+
+    private int bandRows(int height) {
+        return Math.max(MIN_BAND_ROWS, height / (pool.getParallelism() * 4));
+    }
+
+    /* computes output rows [lo, hi) */
+    private class ResizeBand extends RecursiveAction {
+
+        private final PackedImage src, dst;
+        private final int x, y, w;
+        private final WeightTable horizontal, vertical;
+        private final int lo, hi;
+
+        ResizeBand(PackedImage src, int x, int y, int w, PackedImage dst, WeightTable horizontal, WeightTable vertical,
+                   int lo, int hi) {
+            this.src = src;
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.dst = dst;
+            this.horizontal = horizontal;
+            this.vertical = vertical;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > bandRows(dst.getHeight())) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ResizeBand(src, x, y, w, dst, horizontal, vertical, lo, mid),
+                        new ResizeBand(src, x, y, w, dst, horizontal, vertical, mid, hi));
+                return;
+            }
+            int[] in = src.getPixels(), out = dst.getPixels();
+            int srcWidth = src.getWidth(), width = dst.getWidth();
+            float[] reds = new float[w], greens = new float[w], blues = new float[w];
+            for (int i = lo; i < hi; i++) {
+                // vertical pass, the source rows weighted into one row per channel
+                Arrays.fill(reds, 0);
+                Arrays.fill(greens, 0);
+                Arrays.fill(blues, 0);
+                for (int k = 0; k < vertical.taps; k++) {
+                    float weight = vertical.weights[i * vertical.taps + k];
+                    if (weight == 0)
+                        continue;
+                    int row = (y + vertical.start[i] + k) * srcWidth + x;
+                    for (int c = 0; c < w; c++) {
+                        int px = in[row + c];
+                        reds[c] += weight * ((px >> 16) & 0xFF);
+                        greens[c] += weight * ((px >> 8) & 0xFF);
+                        blues[c] += weight * (px & 0xFF);
+                    }
+                }
+                // horizontal pass
+                int taps = horizontal.taps;
+                for (int j = 0, p = i * width; j < width; j++, p++) {
+                    float red = 0, green = 0, blue = 0;
+                    for (int k = 0, c = horizontal.start[j]; k < taps; k++, c++) {
+                        float weight = horizontal.weights[j * taps + k];
+                        red += weight * reds[c];
+                        green += weight * greens[c];
+                        blue += weight * blues[c];
+                    }
+                    out[p] = PackedImage.rgb(PackedImage.clamp(Math.round(red)),
+                            PackedImage.clamp(Math.round(green)),
+                            PackedImage.clamp(Math.round(blue)));
+                }
+            }
+        }
+    }
+
+    /* computes rows [lo, hi) of a halved image */
+    private class HalveBand extends RecursiveAction {
+
+        private final PackedImage src, dst;
+        private final int lo, hi;
+
+        HalveBand(PackedImage src, PackedImage dst, int lo, int hi) {
+            this.src = src;
+            this.dst = dst;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > bandRows(dst.getHeight())) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new HalveBand(src, dst, lo, mid), new HalveBand(src, dst, mid, hi));
+                return;
+            }
+            int[] in = src.getPixels(), out = dst.getPixels();
+            int srcWidth = src.getWidth(), width = dst.getWidth();
+            for (int i = lo; i < hi; i++) {
+                int top = 2 * i * srcWidth, bottom = Math.min(2 * i + 1, src.getHeight() - 1) * srcWidth;
+                for (int j = 0; j < width; j++) {
+                    int left = 2 * j, right = Math.min(2 * j + 1, srcWidth - 1);
+                    int a = in[top + left], b = in[top + right], c = in[bottom + left], d = in[bottom + right];
+                    // red and blue are averaged together, their sums cannot overlap
+                    int redBlue = ((a & 0xFF00FF) + (b & 0xFF00FF) + (c & 0xFF00FF) + (d & 0xFF00FF) + 0x020002) >> 2;
+                    int green = ((a & 0xFF00) + (b & 0xFF00) + (c & 0xFF00) + (d & 0xFF00) + 0x200) >> 2;
+                    out[i * width + j] = (redBlue & 0xFF00FF) | (green & 0xFF00);
+                }
+            }
+        }
+    }
+}
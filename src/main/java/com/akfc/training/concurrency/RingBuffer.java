@@ -0,0 +1,240 @@
+package com.akfc.training.concurrency;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free BlockingQueue on a ring of sequence-numbered slots (D. Vyukov's
+ * bounded MPMC queue), in single or multiple producer and consumer flavors.
+ *
+ * Producers and consumers each own a counter, tail and head, that only grows, and
+ * claim a slot by moving their counter once its sequence number says it is their
+ * turn: with a CAS when several threads share the counter, with a plain store in the
+ * single producer (or consumer) variants. There is no lock, a slow thread holds up
+ * only the slot it claimed, and producers and consumers never write the same counter.
+ * RingSequencer keeps the counters and sequence numbers, this class the elements.
+ *
+ * offerAll() and drainTo() claim as many consecutive slots as are ready with a single
+ * counter update, which divides the traffic on the shared counters by the batch size.
+ *
+ * The blocking methods (put, take and the timed offer and poll) have nothing to wait
+ * on: they retry and idle between attempts according to the WaitStrategy. Capacity is
+ * rounded up to a power of two, at least 2. Iterators are weakly consistent snapshots
+ * that do not support remove(), hence neither does remove(Object).
+ *
+ * spsc() must only be used by one producer thread and one consumer thread at a time,
+ * mpsc() by one consumer thread; nothing checks it.
+ */
+public final class RingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final RingSequencer sequencer;
+    private final AtomicReferenceArray<E> elements;
+    private final RingSequencer.Transfer<List<? extends E>> store = this::store;
+
+    private RingBuffer(RingSequencer sequencer) {
+        this.sequencer = sequencer;
+        elements = new AtomicReferenceArray<>(sequencer.capacity());
+    }
+
+    /* one producer thread, one consumer thread */
+    public static <E> RingBuffer<E> spsc(int capacity) {
+        return spsc(capacity, WaitStrategy.PARK);
+    }
+
+    public static <E> RingBuffer<E> spsc(int capacity, WaitStrategy waitStrategy) {
+        return new RingBuffer<>(RingSequencer.spsc(capacity, waitStrategy));
+    }
+
+    /* any number of producers, one consumer thread */
+    public static <E> RingBuffer<E> mpsc(int capacity) {
+        return mpsc(capacity, WaitStrategy.PARK);
+    }
+
+    public static <E> RingBuffer<E> mpsc(int capacity, WaitStrategy waitStrategy) {
+        return new RingBuffer<>(RingSequencer.mpsc(capacity, waitStrategy));
+    }
+
+    /* any number of producers and consumers */
+    public static <E> RingBuffer<E> mpmc(int capacity) {
+        return mpmc(capacity, WaitStrategy.PARK);
+    }
+
+    public static <E> RingBuffer<E> mpmc(int capacity, WaitStrategy waitStrategy) {
+        return new RingBuffer<>(RingSequencer.mpmc(capacity, waitStrategy));
+    }
+
+    public int capacity() {
+        return sequencer.capacity();
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return sequencer.waitStrategy();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long pos = sequencer.claimWrite();
+        if (pos < 0)
+            return false;
+        publish(pos, e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long pos = sequencer.claimRead();
+        return pos < 0 ? null : take(pos);
+    }
+
+    @Override
+    public E peek() {
+        for (;;) {
+            long h = sequencer.head();
+            if (!sequencer.isPublished(h))
+                return null;
+            E e = elements.get(sequencer.index(h));
+            // a null or newer element means the slot was taken meanwhile
+            if (e != null && sequencer.head() == h)
+                return e;
+        }
+    }
+
+    /*
+     * offers items in order, as many as there is room for, and returns how many;
+     * consecutive free slots are claimed all at once
+     */
+    public int offerAll(List<? extends E> items) {
+        for (E e : items)
+            Objects.requireNonNull(e);
+        return sequencer.write(items, 0, items.size(), store);
+    }
+
+    private int store(List<? extends E> items, int from, long pos, int n) {
+        for (int k = 0; k < n; k++)
+            elements.lazySet(sequencer.index(pos + k), items.get(from + k));
+        return n;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /*
+     * consecutive published slots are claimed all at once. When c refuses an element
+     * (add throws), spsc() and mpsc() keep it queued with the ones after it: their single
+     * consumer hands the elements over before claiming their slots. mpmc() must claim
+     * first, other consumers then move past the claimed slots, which cannot be given
+     * back: the refused element and the rest of its batch are lost.
+     */
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this)
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        Drain drain = new Drain();
+        int drained = sequencer.read(c, 0, maxElements, drain);
+        if (drain.refused != null)
+            throw drain.refused;
+        return drained;
+    }
+
+    /* hands elements over to a collection, stopping at the first one it refuses */
+    private final class Drain implements RingSequencer.Transfer<Collection<? super E>> {
+
+        RuntimeException refused;
+
+        @Override
+        public int transfer(Collection<? super E> c, int from, long pos, int n) {
+            for (int k = 0; k < n; k++) {
+                int i = sequencer.index(pos + k);
+                try {
+                    c.add(elements.get(i));
+                } catch (RuntimeException e) {
+                    refused = e;
+                    return k;
+                }
+                elements.lazySet(i, null);
+            }
+            return n;
+        }
+    }
+
+    /* stores e in the claimed position pos and hands it to the consumers */
+    private void publish(long pos, E e) {
+        elements.lazySet(sequencer.index(pos), e);
+        sequencer.publish(pos);
+    }
+
+    /* removes the element of the claimed position pos and hands the slot to the next lap */
+    private E take(long pos) {
+        int i = sequencer.index(pos);
+        E e = elements.get(i);
+        elements.lazySet(i, null);
+        sequencer.free(pos);
+        return e;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        publish(sequencer.awaitWrite(), e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        long pos = sequencer.awaitWrite(System.nanoTime() + unit.toNanos(timeout));
+        if (pos < 0)
+            return false;
+        publish(pos, e);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return take(sequencer.awaitRead());
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long pos = sequencer.awaitRead(System.nanoTime() + unit.toNanos(timeout));
+        return pos < 0 ? null : take(pos);
+    }
+
+    /* claimed positions included, whether their elements are published yet or not */
+    @Override
+    public int size() {
+        return sequencer.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+
+    /* snapshot of the elements between head and tail, remove() not supported */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long h = sequencer.head(), t = sequencer.tail();
+        for (long pos = h; pos < t; pos++) {
+            if (!sequencer.isPublished(pos))
+                continue;
+            E e = elements.get(sequencer.index(pos));
+            // still the element of position pos once read
+            if (e != null && sequencer.isPublished(pos))
+                snapshot.add(e);
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+}
@@ -0,0 +1,314 @@
+package com.akfc.training.concurrency;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Positions of a bounded lock-free ring of sequence-numbered slots (D. Vyukov's bounded
+ * MPMC queue), shared by RingBuffer, IntBlockingQueue and LongBlockingQueue: the
+ * sequencer claims, publishes and frees positions, the queues only store and copy the
+ * values of the positions it hands them.
+ *
+ * Producers and consumers each own a counter, tail and head, that only grows. Slot i
+ * has a sequence number telling whose turn it is: pos when it is free for the producer
+ * of position pos, pos + 1 once that producer has published its value, and pos +
+ * capacity when the consumer has read it, i.e. free for the next lap. A thread first
+ * checks the sequence of the slot under its counter, then claims the position by
+ * moving the counter: with a CAS when several threads share the counter, with a plain
+ * store otherwise. There is no lock, a slow thread holds up only the slot it claimed,
+ * and producers and consumers never write the same counter. Both counters are 128
+ * bytes apart, on cache lines of their own. A value is a plain store made visible by
+ * the release of its slot's sequence number, and read after the acquire of it.
+ *
+ * write() and read() claim as many consecutive slots as are ready with a single counter
+ * update and hand the whole range to a Transfer, which copies the values of the batch.
+ */
+final class RingSequencer {
+
+    static final int MAX_CAPACITY = 1 << 30;
+    // tail and head, each PAD longs away from the others and from the array header
+    private static final int TAIL = PaddedCells.PAD, HEAD = 2 * PaddedCells.PAD;
+
+    /* copies values between a batch and the ring */
+    @FunctionalInterface
+    interface Transfer<B> {
+
+        /*
+         * copies n values between batch[from, from + n) and the slots of positions
+         * [pos, pos + n), see index(); returns how many it copied, fewer only when reading
+         */
+        int transfer(B batch, int from, long pos, int n);
+    }
+
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray counters = new AtomicLongArray(3 * PaddedCells.PAD);
+    private final int mask;
+    // whether several producers, or consumers, move the counter
+    private final boolean sharedTail, sharedHead;
+    private final WaitStrategy waitStrategy;
+
+    private RingSequencer(int capacity, boolean sharedTail, boolean sharedHead, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Capacity must be in [1, 2^30], got " + capacity);
+        // with a single slot, published (pos + 1) and free for the next lap (pos + capacity) are the same
+        capacity = PaddedCells.nextPowerOfTwo(Math.max(2, capacity));
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+        mask = capacity - 1;
+        this.sharedTail = sharedTail;
+        this.sharedHead = sharedHead;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    /* one producer thread, one consumer thread */
+    static RingSequencer spsc(int capacity, WaitStrategy waitStrategy) {
+        return new RingSequencer(capacity, false, false, waitStrategy);
+    }
+
+    /* any number of producers, one consumer thread */
+    static RingSequencer mpsc(int capacity, WaitStrategy waitStrategy) {
+        return new RingSequencer(capacity, true, false, waitStrategy);
+    }
+
+    /* any number of producers and consumers */
+    static RingSequencer mpmc(int capacity, WaitStrategy waitStrategy) {
+        return new RingSequencer(capacity, true, true, waitStrategy);
+    }
+
+    /* a power of two, at least 2 */
+    int capacity() {
+        return mask + 1;
+    }
+
+    WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    /* slot of position pos, in [0, capacity) */
+    int index(long pos) {
+        return (int) pos & mask;
+    }
+
+    long head() {
+        return counters.get(HEAD);
+    }
+
+    long tail() {
+        return counters.get(TAIL);
+    }
+
+    /* moves the tail from t to t + n, false if another producer moved it first */
+    private boolean claimTail(long t, int n) {
+        if (sharedTail)
+            return counters.compareAndSet(TAIL, t, t + n);
+        counters.lazySet(TAIL, t + n);
+        return true;
+    }
+
+    /* moves the head from h to h + n, false if another consumer moved it first */
+    private boolean claimHead(long h, int n) {
+        if (sharedHead)
+            return counters.compareAndSet(HEAD, h, h + n);
+        counters.lazySet(HEAD, h + n);
+        return true;
+    }
+
+    /* claims the next position to write, -1 when the ring is full */
+    long claimWrite() {
+        for (;;) {
+            long t = counters.get(TAIL);
+            long lag = sequences.get(index(t)) - t;
+            if (lag == 0) {
+                if (claimTail(t, 1))
+                    return t;
+            } else if (lag < 0) {
+                // the value of the previous lap is still there
+                return -1;
+            }
+            // else another producer took t meanwhile
+        }
+    }
+
+    /* hands the value written at the claimed position pos to the consumers */
+    void publish(long pos) {
+        sequences.lazySet(index(pos), pos + 1);
+    }
+
+    /* claims the oldest published position, -1 when the ring is empty */
+    long claimRead() {
+        for (;;) {
+            long h = counters.get(HEAD);
+            long lag = sequences.get(index(h)) - (h + 1);
+            if (lag == 0) {
+                if (claimHead(h, 1))
+                    return h;
+            } else if (lag < 0) {
+                return -1;
+            }
+        }
+    }
+
+    /* hands the slot of the read position pos to the producers of the next lap */
+    void free(long pos) {
+        sequences.lazySet(index(pos), pos + mask + 1);
+    }
+
+    /* whether the value of pos is published and not read yet; a snapshot, for peeking */
+    boolean isPublished(long pos) {
+        return sequences.get(index(pos)) == pos + 1;
+    }
+
+    /*
+     * writes batch[from, from + count) in order through store, as many values as there is
+     * room for, and returns how many
+     */
+    <B> int write(B batch, int from, int count, Transfer<? super B> store) {
+        int written = 0;
+        while (written < count) {
+            long t = counters.get(TAIL);
+            int limit = Math.min(count - written, capacity());
+            int n = 0;
+            while (n < limit && sequences.get(index(t + n)) == t + n)
+                n++;
+            if (n == 0) {
+                // full, unless another producer took t meanwhile
+                if (sequences.get(index(t)) < t)
+                    break;
+                continue;
+            }
+            if (claimTail(t, n)) {
+                store.transfer(batch, from + written, t, n);
+                for (int k = 0; k < n; k++)
+                    publish(t + k);
+                written += n;
+            }
+        }
+        return written;
+    }
+
+    /*
+     * reads up to max values in order into batch[from, from + max) through load and
+     * returns how many, without waiting. load may copy fewer values than it is given,
+     * e.g. when its target refuses one; reading then stops. With a single consumer the
+     * values are copied before their slots are claimed, so the ones load did not copy
+     * stay queued. With several consumers the slots are claimed first and other
+     * consumers move past them: the ones load did not copy are lost.
+     */
+    <B> int read(B batch, int from, int max, Transfer<? super B> load) {
+        int read = 0;
+        while (read < max) {
+            long h = counters.get(HEAD);
+            int limit = Math.min(max - read, capacity());
+            int n = 0;
+            while (n < limit && sequences.get(index(h + n)) == h + n + 1)
+                n++;
+            if (n == 0) {
+                if (sequences.get(index(h)) < h + 1)
+                    break;
+                continue;
+            }
+            if (sharedHead && !claimHead(h, n))
+                continue;
+            int copied = 0;
+            try {
+                copied = load.transfer(batch, from + read, h, n);
+            } finally {
+                // claimed slots are freed whatever load did, a single consumer claims the copied ones only
+                int claimed = n;
+                if (!sharedHead)
+                    claimHead(h, claimed = copied);
+                for (int k = 0; k < claimed; k++)
+                    free(h + k);
+            }
+            read += copied;
+            if (copied < n)
+                break;
+        }
+        return read;
+    }
+
+    /* claims the next position to write, waiting for room */
+    long awaitWrite() throws InterruptedException {
+        long pos;
+        for (int round = 0; (pos = claimWrite()) < 0; round++)
+            idle(round);
+        return pos;
+    }
+
+    /* claims the next position to write, -1 if there is still no room at deadline (System.nanoTime()) */
+    long awaitWrite(long deadline) throws InterruptedException {
+        long pos;
+        for (int round = 0; (pos = claimWrite()) < 0; round++) {
+            if (!idle(round, deadline))
+                return -1;
+        }
+        return pos;
+    }
+
+    /* claims the oldest published position, waiting for one */
+    long awaitRead() throws InterruptedException {
+        long pos;
+        for (int round = 0; (pos = claimRead()) < 0; round++)
+            idle(round);
+        return pos;
+    }
+
+    /* claims the oldest published position, -1 if there is still none at deadline (System.nanoTime()) */
+    long awaitRead(long deadline) throws InterruptedException {
+        long pos;
+        for (int round = 0; (pos = claimRead()) < 0; round++) {
+            if (!idle(round, deadline))
+                return -1;
+        }
+        return pos;
+    }
+
+    /* writes the whole of batch[from, from + count), waiting for room as needed */
+    <B> void writeAll(B batch, int from, int count, Transfer<? super B> store) throws InterruptedException {
+        for (int round = 0; count > 0; ) {
+            int written = write(batch, from, count, store);
+            if (written > 0) {
+                from += written;
+                count -= written;
+                round = 0;
+            } else {
+                idle(round++);
+            }
+        }
+    }
+
+    /* waits for at least one value, then reads up to max of them; load must copy all it is given */
+    <B> int readSome(B batch, int from, int max, Transfer<? super B> load) throws InterruptedException {
+        int n;
+        for (int round = 0; (n = read(batch, from, max, load)) == 0; round++)
+            idle(round);
+        return n;
+    }
+
+    private void idle(int round) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        waitStrategy.idle(round);
+    }
+
+    /* false instead of idling once deadline has passed */
+    private boolean idle(int round, long deadline) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (System.nanoTime() - deadline >= 0)
+            return false;
+        waitStrategy.idle(round);
+        return true;
+    }
+
+    /* positions claimed by producers and not yet by consumers, whether published or not */
+    int size() {
+        for (;;) {
+            long h = counters.get(HEAD);
+            long t = counters.get(TAIL);
+            if (counters.get(HEAD) == h)
+                return (int) Math.max(0, Math.min(t - h, capacity()));
+        }
+    }
+}
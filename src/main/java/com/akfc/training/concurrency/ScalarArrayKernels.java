@@ -0,0 +1,192 @@
+package com.akfc.training.concurrency;
+
+/* plain loop implementation of ArrayKernels, used when the Vector API is not available */
+class ScalarArrayKernels implements ArrayKernels {
+
+    static void checkLengths(int expected, int... lengths) {
+        for (int length : lengths) {
+            if (length != expected)
+                throw new IllegalArgumentException(String.format("Array lengths differ: %d and %d", expected, length));
+        }
+    }
+
+    static void checkNotEmpty(int length) {
+        if (length == 0)
+            throw new IllegalArgumentException("Empty array");
+    }
+
+    @Override
+    public void add(int[] a, int[] b, int[] out) {
+        checkLengths(a.length, b.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] + b[i];
+    }
+
+    @Override
+    public void add(float[] a, float[] b, float[] out) {
+        checkLengths(a.length, b.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] + b[i];
+    }
+
+    @Override
+    public void add(double[] a, double[] b, double[] out) {
+        checkLengths(a.length, b.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] + b[i];
+    }
+
+    @Override
+    public void mul(int[] a, int[] b, int[] out) {
+        checkLengths(a.length, b.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] * b[i];
+    }
+
+    @Override
+    public void mul(float[] a, float[] b, float[] out) {
+        checkLengths(a.length, b.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] * b[i];
+    }
+
+    @Override
+    public void mul(double[] a, double[] b, double[] out) {
+        checkLengths(a.length, b.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] * b[i];
+    }
+
+    @Override
+    public void fma(int[] a, int[] b, int[] c, int[] out) {
+        checkLengths(a.length, b.length, c.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = a[i] * b[i] + c[i];
+    }
+
+    @Override
+    public void fma(float[] a, float[] b, float[] c, float[] out) {
+        checkLengths(a.length, b.length, c.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = Math.fma(a[i], b[i], c[i]);
+    }
+
+    @Override
+    public void fma(double[] a, double[] b, double[] c, double[] out) {
+        checkLengths(a.length, b.length, c.length, out.length);
+        for (int i = 0; i < a.length; i++)
+            out[i] = Math.fma(a[i], b[i], c[i]);
+    }
+
+    @Override
+    public long dot(int[] a, int[] b) {
+        checkLengths(a.length, b.length);
+        long sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum += (long) a[i] * b[i];
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        checkLengths(a.length, b.length);
+        float sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum = Math.fma(a[i], b[i], sum);
+        return sum;
+    }
+
+    @Override
+    public double dot(double[] a, double[] b) {
+        checkLengths(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum = Math.fma(a[i], b[i], sum);
+        return sum;
+    }
+
+    @Override
+    public long sum(int[] a) {
+        long sum = 0;
+        for (int value : a)
+            sum += value;
+        return sum;
+    }
+
+    @Override
+    public float sum(float[] a) {
+        float sum = 0;
+        for (float value : a)
+            sum += value;
+        return sum;
+    }
+
+    @Override
+    public double sum(double[] a) {
+        double sum = 0;
+        for (double value : a)
+            sum += value;
+        return sum;
+    }
+
+    @Override
+    public int min(int[] a) {
+        checkNotEmpty(a.length);
+        int min = a[0];
+        for (int value : a)
+            min = Math.min(min, value);
+        return min;
+    }
+
+    @Override
+    public float min(float[] a) {
+        checkNotEmpty(a.length);
+        float min = a[0];
+        for (float value : a)
+            min = Math.min(min, value);
+        return min;
+    }
+
+    @Override
+    public double min(double[] a) {
+        checkNotEmpty(a.length);
+        double min = a[0];
+        for (double value : a)
+            min = Math.min(min, value);
+        return min;
+    }
+
+    @Override
+    public int max(int[] a) {
+        checkNotEmpty(a.length);
+        int max = a[0];
+        for (int value : a)
+            max = Math.max(max, value);
+        return max;
+    }
+
+    @Override
+    public float max(float[] a) {
+        checkNotEmpty(a.length);
+        float max = a[0];
+        for (float value : a)
+            max = Math.max(max, value);
+        return max;
+    }
+
+    @Override
+    public double max(double[] a) {
+        checkNotEmpty(a.length);
+        double max = a[0];
+        for (double value : a)
+            max = Math.max(max, value);
+        return max;
+    }
+
+    @Override
+    public void toUnsignedBytes(int[] src, byte[] dst) {
+        checkLengths(src.length, dst.length);
+        for (int i = 0; i < src.length; i++)
+            dst[i] = (byte) Math.max(0, Math.min(255, src[i]));
+    }
+}
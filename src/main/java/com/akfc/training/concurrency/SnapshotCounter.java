@@ -0,0 +1,66 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Striped counter for values read far more often than a full sum is worth, e.g. a
+ * metric polled by every request.
+ *
+ * Adds are the ones of StripedCounter. get() returns a snapshot of the sum that is at
+ * most maxStale old: the first reader that finds it older sums the cells and publishes
+ * the result, the others keep returning the previous snapshot meanwhile instead of
+ * queueing behind it. Most reads are thus two volatile reads and a nanoTime(), whatever
+ * the number of cells. sum() always sums the cells.
+ */
+public class SnapshotCounter implements Counter {
+
+    private final PaddedCells cells;
+    private final long maxStaleNanos;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long snapshot;
+    private volatile long takenAt;
+
+    public SnapshotCounter(long maxStale, TimeUnit unit) {
+        this(maxStale, unit, PaddedCells.DEFAULT_STRIPES);
+    }
+
+    /* stripes is rounded up to a power of two */
+    public SnapshotCounter(long maxStale, TimeUnit unit, int stripes) {
+        if (maxStale < 0)
+            throw new IllegalArgumentException("Staleness must not be negative, got " + maxStale);
+        maxStaleNanos = unit.toNanos(maxStale);
+        cells = new PaddedCells(stripes);
+        takenAt = System.nanoTime();
+    }
+
+    @Override
+    public void add(long x) {
+        cells.add(x);
+    }
+
+    /* the sum of the cells as of at most maxStale ago */
+    @Override
+    public long get() {
+        long now = System.nanoTime();
+        if (now - takenAt > maxStaleNanos && refreshing.compareAndSet(false, true)) {
+            try {
+                snapshot = cells.sum();
+                takenAt = now;
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return snapshot;
+    }
+
+    /* current sum, exact only if no add runs meanwhile */
+    public long sum() {
+        return cells.sum();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,44 @@
+package com.akfc.training.concurrency;
+
+/**
+ * Exact counter spread over cache-line-padded cells, like LongAdder.
+ *
+ * A single AtomicLong (or lock) serializes every increment on one cache line that
+ * bounces between cores; here each thread adds to its own cell most of the time, so
+ * adds scale with the number of cores. The price is get(), which sums all the cells:
+ * it is exact when no add runs concurrently, otherwise it may miss the adds that are
+ * in progress. For counters read much more often than they are written see
+ * SnapshotCounter.
+ */
+public class StripedCounter implements Counter {
+
+    private final PaddedCells cells;
+
+    public StripedCounter() {
+        this(PaddedCells.DEFAULT_STRIPES);
+    }
+
+    /* stripes is rounded up to a power of two */
+    public StripedCounter(int stripes) {
+        cells = new PaddedCells(stripes);
+    }
+
+    @Override
+    public void add(long x) {
+        cells.add(x);
+    }
+
+    @Override
+    public long get() {
+        return cells.sum();
+    }
+
+    public int stripes() {
+        return cells.stripes();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
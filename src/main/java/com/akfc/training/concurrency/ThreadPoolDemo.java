@@ -1,24 +1,28 @@
 package com.akfc.training.concurrency;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class ThreadPoolDemo {
 
+    //Run with -Dexecutor.mode=virtual|platform|fork-join -Dexecutor.threads=n (see ExecutionMode)
     public static void main(String[] args) {
         int numProcs = Runtime.getRuntime().availableProcessors();
         System.out.println(numProcs);
-        ExecutorService pool = Executors.newFixedThreadPool(numProcs);
-        for (int i = 0; i < 100; i++) {
-            pool.submit(new Display());
+        ExecutionMode mode = ExecutionMode.configured();
+        System.out.println(mode);
+        //close() waits for the submitted tasks to complete
+        try (ExecutorService pool = mode.newExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                pool.submit(new Display());
+            }
         }
-        pool.shutdown();
     }
 
-    static class Display extends Thread {
+    //Question: what did getName() print when Display extended Thread?
+    static class Display implements Runnable {
         @Override
         public void run() {
-            System.out.println(getName() + " executing");
+            System.out.println(Thread.currentThread() + " executing");
         }
     }
 }
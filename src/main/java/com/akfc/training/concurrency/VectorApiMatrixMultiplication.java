@@ -1,12 +1,13 @@
 package com.akfc.training.concurrency;
 
 import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
 import jdk.incubator.vector.VectorSpecies;
 import jdk.incubator.vector.VectorOperators;
 
 import java.util.Random;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Demonstrates the use of Java's Vector API for matrix multiplication.
@@ -25,9 +26,14 @@ public class VectorApiMatrixMultiplication {
     // Vector species defines the shape and element type of vectors
     private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
     
+    // Micro-kernel shape of the packed multiplication: 4 rows x 2 vectors = 8 accumulators
+    private static final int KERNEL_ROWS = 4;
+    private static final int PANEL_WIDTH = 2 * SPECIES.length();
+    
     private final float[][] matrixA;
     private final float[][] matrixB;
     private final int size;
+    private volatile float[] packedB; // column panels of matrixB, see packB()
     
     public VectorApiMatrixMultiplication(int size) {
         this.size = size;
@@ -114,98 +120,74 @@ public class VectorApiMatrixMultiplication {
      * - Fork-Join framework for parallel processing
      */
     public float[][] parallelVectorizedMultiply() {
-        ForkJoinPool pool = ForkJoinPool.commonPool();
-        try {
-            return pool.invoke(new MatrixMultiplyTask(0, size));
-        } finally {
-            // Note: We don't shutdown the common pool
+        return parallelVectorizedMultiply(new float[size][size]);
+    }
+    
+    /**
+     * Parallel vectorized multiplication into a caller-provided size x size matrix
+     * 
+     * Every leaf task writes its own disjoint band of rows straight into result,
+     * so no partial matrix is allocated nor copied whatever the recursion depth.
+     * Callers running in a loop can reuse the same result matrix to avoid any
+     * allocation proportional to the matrix size.
+     */
+    public float[][] parallelVectorizedMultiply(float[][] result) {
+        // Note: We don't shutdown the common pool
+        return parallelVectorizedMultiply(result, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Parallel vectorized multiplication into result on the workers of pool
+     */
+    public float[][] parallelVectorizedMultiply(float[][] result, ForkJoinPool pool) {
+        // every row is checked up front, a ragged one would only fail inside a task
+        boolean square = result.length == size;
+        for (int i = 0; square && i < size; i++) {
+            square = result[i].length == size;
         }
+        if (!square) {
+            throw new IllegalArgumentException(String.format("Expected a %d x %d result matrix", size, size));
+        }
+        if (size > 0) {
+            pool.invoke(new MatrixMultiplyTask(packedB(), result, 0, size));
+        }
+        return result;
     }
     
     /**
-     * RecursiveTask for parallel matrix multiplication
-     * Uses divide-and-conquer approach to split work across threads
+     * RecursiveAction for parallel matrix multiplication
+     * Uses divide-and-conquer approach to split work across threads,
+     * each leaf computing rows [startRow, endRow) in place in the shared result
      */
-    private class MatrixMultiplyTask extends RecursiveTask<float[][]> {
+    private class MatrixMultiplyTask extends RecursiveAction {
         private static final int THRESHOLD = 64; // Minimum size for parallel processing
+        private final float[] packedB;
+        private final float[][] result;
         private final int startRow;
         private final int endRow;
         
-        public MatrixMultiplyTask(int startRow, int endRow) {
+        public MatrixMultiplyTask(float[] packedB, float[][] result, int startRow, int endRow) {
+            this.packedB = packedB;
+            this.result = result;
             this.startRow = startRow;
             this.endRow = endRow;
         }
         
         @Override
-        protected float[][] compute() {
+        protected void compute() {
             int rowCount = endRow - startRow;
             
             if (rowCount <= THRESHOLD) {
                 // Base case: compute directly using vectorized approach
-                return computeDirectly();
+                packedMultiply(packedB, startRow, endRow, result, 0);
             } else {
-                // Recursive case: split the work
-                int midRow = startRow + rowCount / 2;
-                
-                MatrixMultiplyTask upperTask = new MatrixMultiplyTask(startRow, midRow);
-                MatrixMultiplyTask lowerTask = new MatrixMultiplyTask(midRow, endRow);
-                
-                // Fork the upper task and compute lower task in current thread
-                upperTask.fork();
-                float[][] lowerResult = lowerTask.compute();
-                float[][] upperResult = upperTask.join();
+                // Recursive case: split the work, keeping bands a multiple of the micro-kernel rows
+                int midRow = startRow + (rowCount / 2) / KERNEL_ROWS * KERNEL_ROWS;
                 
-                // Combine results
-                return combineResults(upperResult, lowerResult);
+                invokeAll(new MatrixMultiplyTask(packedB, result, startRow, midRow),
+                          new MatrixMultiplyTask(packedB, result, midRow, endRow));
             }
         }
-        
-        private float[][] computeDirectly() {
-            float[][] result = new float[endRow - startRow][size];
-            int vectorLength = SPECIES.length();
-            
-            for (int i = startRow; i < endRow; i++) {
-                for (int j = 0; j < size; j++) {
-                    float sum = 0.0f;
-                    int k = 0;
-                    
-                    // Vectorized computation
-                    for (; k <= size - vectorLength; k += vectorLength) {
-                        FloatVector vecA = FloatVector.fromArray(SPECIES, matrixA[i], k);
-                        
-                        float[] columnB = new float[vectorLength];
-                        for (int idx = 0; idx < vectorLength; idx++) {
-                            columnB[idx] = matrixB[k + idx][j];
-                        }
-                        FloatVector vecB = FloatVector.fromArray(SPECIES, columnB, 0);
-                        
-                        FloatVector product = vecA.mul(vecB);
-                        sum += product.reduceLanes(VectorOperators.ADD);
-                    }
-                    
-                    // Scalar cleanup
-                    for (; k < size; k++) {
-                        sum += matrixA[i][k] * matrixB[k][j];
-                    }
-                    
-                    result[i - startRow][j] = sum;
-                }
-            }
-            
-            return result;
-        }
-        
-        private float[][] combineResults(float[][] upper, float[][] lower) {
-            float[][] combined = new float[upper.length + lower.length][size];
-            
-            // Copy upper part
-            System.arraycopy(upper, 0, combined, 0, upper.length);
-            
-            // Copy lower part
-            System.arraycopy(lower, 0, combined, upper.length, lower.length);
-            
-            return combined;
-        }
     }
     
     /**
@@ -214,7 +196,9 @@ public class VectorApiMatrixMultiplication {
      * This version demonstrates:
      * - Cache-friendly access patterns
      * - Block-wise computation to improve locality
-     * - More efficient vector operations
+     * - More efficient vector operations: A[i][k] is broadcast and multiplied with
+     *   a contiguous slice of row k of B, so B is never gathered column-wise and
+     *   the lanes of the accumulator are the output elements (no lane reduction)
      */
     public float[][] optimizedVectorizedMultiply() {
         float[][] result = new float[size][size];
@@ -223,8 +207,8 @@ public class VectorApiMatrixMultiplication {
         
         // Block-wise computation for better cache locality
         for (int ii = 0; ii < size; ii += blockSize) {
-            for (int jj = 0; jj < size; jj += blockSize) {
-                for (int kk = 0; kk < size; kk += blockSize) {
+            for (int kk = 0; kk < size; kk += blockSize) {
+                for (int jj = 0; jj < size; jj += blockSize) {
                     
                     // Process blocks
                     int iMax = Math.min(ii + blockSize, size);
@@ -232,30 +216,24 @@ public class VectorApiMatrixMultiplication {
                     int kMax = Math.min(kk + blockSize, size);
                     
                     for (int i = ii; i < iMax; i++) {
-                        for (int j = jj; j < jMax; j++) {
-                            float sum = result[i][j]; // Accumulate existing value
-                            int k = kk;
+                        float[] rowC = result[i];
+                        for (int k = kk; k < kMax; k++) {
+                            float aik = matrixA[i][k];
+                            FloatVector vecA = FloatVector.broadcast(SPECIES, aik);
+                            float[] rowB = matrixB[k];
+                            int j = jj;
                             
-                            // Vectorized inner loop
-                            for (; k <= kMax - vectorLength; k += vectorLength) {
-                                FloatVector vecA = FloatVector.fromArray(SPECIES, matrixA[i], k);
-                                
-                                // Pre-load column data for better performance
-                                float[] columnB = new float[vectorLength];
-                                for (int idx = 0; idx < vectorLength && k + idx < kMax; idx++) {
-                                    columnB[idx] = matrixB[k + idx][j];
-                                }
-                                FloatVector vecB = FloatVector.fromArray(SPECIES, columnB, 0);
-                                
-                                sum += vecA.mul(vecB).reduceLanes(VectorOperators.ADD);
+                            // Vectorized inner loop: C[i][j..j+L) += A[i][k] * B[k][j..j+L)
+                            for (; j <= jMax - vectorLength; j += vectorLength) {
+                                FloatVector vecB = FloatVector.fromArray(SPECIES, rowB, j);
+                                FloatVector vecC = FloatVector.fromArray(SPECIES, rowC, j);
+                                vecA.fma(vecB, vecC).intoArray(rowC, j);
                             }
                             
                             // Handle remaining elements
-                            for (; k < kMax; k++) {
-                                sum += matrixA[i][k] * matrixB[k][j];
+                            for (; j < jMax; j++) {
+                                rowC[j] += aik * rowB[j];
                             }
-                            
-                            result[i][j] = sum;
                         }
                     }
                 }
@@ -265,6 +243,129 @@ public class VectorApiMatrixMultiplication {
         return result;
     }
     
+    /**
+     * Register-blocked vectorized multiplication on a pre-packed copy of B
+     * 
+     * B is packed once into column panels (see packB), then every
+     * KERNEL_ROWS x PANEL_WIDTH tile of the result is computed by a micro-kernel:
+     * - each A[i][k] is broadcast to a full vector
+     * - fma() accumulates into vectors that stay in registers for the whole k loop
+     * - the tile is stored once, at the end, no lane reduction is ever needed
+     */
+    public float[][] packedVectorizedMultiply() {
+        float[][] result = new float[size][size];
+        packedMultiply(packedB(), 0, size, result, 0);
+        return result;
+    }
+    
+    /**
+     * Returns the packed copy of B, built on first use; B never changes afterwards
+     */
+    private float[] packedB() {
+        float[] packed = packedB;
+        if (packed == null) {
+            packed = packB();
+            packedB = packed;
+        }
+        return packed;
+    }
+    
+    /**
+     * Copies B into column panels of PANEL_WIDTH columns. Panel p holds
+     * B[k][p * PANEL_WIDTH .. (p + 1) * PANEL_WIDTH) for k = 0 to n-1 contiguously,
+     * zero-padded past the last column, so the micro-kernel only does unit-stride loads.
+     */
+    private float[] packB() {
+        int panels = (size + PANEL_WIDTH - 1) / PANEL_WIDTH;
+        float[] packed = new float[panels * size * PANEL_WIDTH];
+        for (int p = 0; p < panels; p++) {
+            int firstColumn = p * PANEL_WIDTH;
+            int width = Math.min(PANEL_WIDTH, size - firstColumn);
+            int base = p * size * PANEL_WIDTH;
+            for (int k = 0; k < size; k++) {
+                System.arraycopy(matrixB[k], firstColumn, packed, base + k * PANEL_WIDTH, width);
+            }
+        }
+        return packed;
+    }
+    
+    /**
+     * Computes rows [startRow, endRow) of A * B from the packed B,
+     * row i of the product being stored in result[i - resultRowOffset]
+     */
+    private void packedMultiply(float[] packedB, int startRow, int endRow, float[][] result, int resultRowOffset) {
+        int vectorLength = SPECIES.length();
+        int panels = (size + PANEL_WIDTH - 1) / PANEL_WIDTH;
+        
+        // Panel-major order: the current panel of B stays in cache for all the rows
+        for (int p = 0; p < panels; p++) {
+            int j0 = p * PANEL_WIDTH;
+            int j1 = j0 + vectorLength;
+            int base = p * size * PANEL_WIDTH;
+            VectorMask<Float> mask0 = SPECIES.indexInRange(j0, size);
+            VectorMask<Float> mask1 = SPECIES.indexInRange(j1, size);
+            
+            int i = startRow;
+            for (; i + KERNEL_ROWS <= endRow; i += KERNEL_ROWS) {
+                float[] a0 = matrixA[i], a1 = matrixA[i + 1], a2 = matrixA[i + 2], a3 = matrixA[i + 3];
+                FloatVector c00 = FloatVector.zero(SPECIES), c01 = FloatVector.zero(SPECIES);
+                FloatVector c10 = FloatVector.zero(SPECIES), c11 = FloatVector.zero(SPECIES);
+                FloatVector c20 = FloatVector.zero(SPECIES), c21 = FloatVector.zero(SPECIES);
+                FloatVector c30 = FloatVector.zero(SPECIES), c31 = FloatVector.zero(SPECIES);
+                
+                for (int k = 0, offset = base; k < size; k++, offset += PANEL_WIDTH) {
+                    FloatVector b0 = FloatVector.fromArray(SPECIES, packedB, offset);
+                    FloatVector b1 = FloatVector.fromArray(SPECIES, packedB, offset + vectorLength);
+                    FloatVector x = FloatVector.broadcast(SPECIES, a0[k]);
+                    c00 = x.fma(b0, c00);
+                    c01 = x.fma(b1, c01);
+                    x = FloatVector.broadcast(SPECIES, a1[k]);
+                    c10 = x.fma(b0, c10);
+                    c11 = x.fma(b1, c11);
+                    x = FloatVector.broadcast(SPECIES, a2[k]);
+                    c20 = x.fma(b0, c20);
+                    c21 = x.fma(b1, c21);
+                    x = FloatVector.broadcast(SPECIES, a3[k]);
+                    c30 = x.fma(b0, c30);
+                    c31 = x.fma(b1, c31);
+                }
+                
+                storeTile(c00, c01, result[i - resultRowOffset], j0, j1, mask0, mask1);
+                storeTile(c10, c11, result[i + 1 - resultRowOffset], j0, j1, mask0, mask1);
+                storeTile(c20, c21, result[i + 2 - resultRowOffset], j0, j1, mask0, mask1);
+                storeTile(c30, c31, result[i + 3 - resultRowOffset], j0, j1, mask0, mask1);
+            }
+            
+            // Remaining rows, one at a time
+            for (; i < endRow; i++) {
+                float[] a0 = matrixA[i];
+                FloatVector c00 = FloatVector.zero(SPECIES), c01 = FloatVector.zero(SPECIES);
+                for (int k = 0, offset = base; k < size; k++, offset += PANEL_WIDTH) {
+                    FloatVector x = FloatVector.broadcast(SPECIES, a0[k]);
+                    c00 = x.fma(FloatVector.fromArray(SPECIES, packedB, offset), c00);
+                    c01 = x.fma(FloatVector.fromArray(SPECIES, packedB, offset + vectorLength), c01);
+                }
+                storeTile(c00, c01, result[i - resultRowOffset], j0, j1, mask0, mask1);
+            }
+        }
+    }
+    
+    /**
+     * Stores the two accumulators of a tile row, masking out the columns past the matrix edge
+     */
+    private void storeTile(FloatVector c0, FloatVector c1, float[] row, int j0, int j1,
+                           VectorMask<Float> mask0, VectorMask<Float> mask1) {
+        if (j1 + SPECIES.length() <= size) {
+            c0.intoArray(row, j0);
+            c1.intoArray(row, j1);
+        } else {
+            c0.intoArray(row, j0, mask0);
+            if (j1 < size) {
+                c1.intoArray(row, j1, mask1);
+            }
+        }
+    }
+    
     /**
      * Generates a random matrix filled with values between 0 and 1
      */
@@ -324,6 +425,7 @@ public class VectorApiMatrixMultiplication {
         for (int i = 0; i < 3; i++) {
             traditionalMultiply();
             vectorizedMultiply();
+            packedVectorizedMultiply();
         }
         
         // Benchmark traditional approach
@@ -346,10 +448,16 @@ public class VectorApiMatrixMultiplication {
         float[][] optimizedResult = optimizedVectorizedMultiply();
         long optimizedTime = System.nanoTime() - startTime;
         
+        // Benchmark packed vectorized approach
+        startTime = System.nanoTime();
+        float[][] packedResult = packedVectorizedMultiply();
+        long packedTime = System.nanoTime() - startTime;
+        
         // Verify correctness (use more relaxed tolerance for floating-point comparison)
         boolean vectorizedCorrect = matricesEqual(traditionalResult, vectorizedResult, 1e-3f);
         boolean parallelCorrect = matricesEqual(traditionalResult, parallelResult, 1e-3f);
         boolean optimizedCorrect = matricesEqual(traditionalResult, optimizedResult, 1e-3f);
+        boolean packedCorrect = matricesEqual(traditionalResult, packedResult, 1e-3f);
         
         // Print results
         System.out.println("=== Results ===");
@@ -367,6 +475,10 @@ public class VectorApiMatrixMultiplication {
                          optimizedTime / 1_000_000.0,
                          (double) traditionalTime / optimizedTime,
                          optimizedCorrect ? "✓" : "✗");
+        System.out.printf("Packed Vectorized:     %8.2f ms (%.2fx %s)%n", 
+                         packedTime / 1_000_000.0,
+                         (double) traditionalTime / packedTime,
+                         packedCorrect ? "✓" : "✗");
         
         System.out.println();
         System.out.println("=== Vector API Benefits ===");
@@ -378,8 +490,11 @@ public class VectorApiMatrixMultiplication {
     }
     
     public static void main(String[] args) {
-        // Test with different matrix sizes
+        // Test with different matrix sizes, overridable from the command line
         int[] sizes = {128, 256, 512};
+        if (args.length > 0) {
+            sizes = java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        }
         
         for (int size : sizes) {
             System.out.println("Testing with matrix size: " + size);
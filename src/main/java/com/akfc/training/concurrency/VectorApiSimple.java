@@ -1,8 +1,11 @@
 package com.akfc.training.concurrency;
 
 import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
 import jdk.incubator.vector.VectorSpecies;
 
+import java.util.Arrays;
+
 public class VectorApiSimple {
 
     private int[] a = new int[1000];
@@ -16,15 +19,37 @@ public class VectorApiSimple {
 
     public void vectorizedApproach() {
         VectorSpecies<Integer> species = IntVector.SPECIES_PREFERRED;
-        IntVector va = IntVector.fromArray(species, a, 0);
-        IntVector vb = IntVector.fromArray(species, b, 0);
-        IntVector vc = va.mul(vb);
-        vc.intoArray(c, 0);
+        int i = 0;
+        // whole vectors first, loopBound is the largest multiple of the vector length
+        for (int upper = species.loopBound(a.length); i < upper; i += species.length()) {
+            IntVector va = IntVector.fromArray(species, a, i);
+            IntVector vb = IntVector.fromArray(species, b, i);
+            IntVector vc = va.mul(vb);
+            vc.intoArray(c, i);
+        }
+        // then the tail with a mask disabling the lanes past the end of the arrays
+        if (i < a.length) {
+            VectorMask<Integer> mask = species.indexInRange(i, a.length);
+            IntVector va = IntVector.fromArray(species, a, i, mask);
+            IntVector vb = IntVector.fromArray(species, b, i, mask);
+            va.mul(vb).intoArray(c, i, mask);
+        }
+    }
+
+    /* same computation through the reusable kernels, which fall back to scalar code without the Vector API */
+    public void kernelApproach() {
+        ArrayKernels.get().mul(a, b, c);
     }
 
     public static void main(String[] args) {
         VectorApiSimple simple = new VectorApiSimple();
+        Arrays.setAll(simple.a, i -> i);
+        Arrays.setAll(simple.b, i -> 2 * i);
         simple.classicalApproach();
+        int[] expected = simple.c.clone();
         simple.vectorizedApproach();
+        System.out.println("Vectorized approach matches: " + Arrays.equals(expected, simple.c));
+        simple.kernelApproach();
+        System.out.println(ArrayKernels.get().getClass().getSimpleName() + " matches: " + Arrays.equals(expected, simple.c));
     }
 }
@@ -0,0 +1,337 @@
+package com.akfc.training.concurrency;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.akfc.training.concurrency.ScalarArrayKernels.checkLengths;
+import static com.akfc.training.concurrency.ScalarArrayKernels.checkNotEmpty;
+
+/**
+ * Vector API implementation of ArrayKernels.
+ *
+ * Every loop processes whole vectors up to loopBound() and finishes with a single
+ * masked iteration for the tail, masked-out lanes being loaded as zeros (or left
+ * untouched for min/max), so no scalar cleanup loop is needed.
+ */
+class VectorArrayKernels implements ArrayKernels {
+
+    private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONG = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLE = DoubleVector.SPECIES_PREFERRED;
+    // same bit size as INT, an int vector converted to bytes fills its first INT.length() lanes
+    private static final VectorSpecies<Byte> BYTE = INT.withLanes(byte.class);
+    private static final VectorMask<Byte> INT_LANES = BYTE.indexInRange(0, INT.length());
+
+    @Override
+    public void add(int[] a, int[] b, int[] out) {
+        checkLengths(a.length, b.length, out.length);
+        int i = 0;
+        for (int upper = INT.loopBound(a.length); i < upper; i += INT.length()) {
+            IntVector.fromArray(INT, a, i).add(IntVector.fromArray(INT, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Integer> m = INT.indexInRange(i, a.length);
+            IntVector.fromArray(INT, a, i, m).add(IntVector.fromArray(INT, b, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void add(float[] a, float[] b, float[] out) {
+        checkLengths(a.length, b.length, out.length);
+        int i = 0;
+        for (int upper = FLOAT.loopBound(a.length); i < upper; i += FLOAT.length()) {
+            FloatVector.fromArray(FLOAT, a, i).add(FloatVector.fromArray(FLOAT, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Float> m = FLOAT.indexInRange(i, a.length);
+            FloatVector.fromArray(FLOAT, a, i, m).add(FloatVector.fromArray(FLOAT, b, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void add(double[] a, double[] b, double[] out) {
+        checkLengths(a.length, b.length, out.length);
+        int i = 0;
+        for (int upper = DOUBLE.loopBound(a.length); i < upper; i += DOUBLE.length()) {
+            DoubleVector.fromArray(DOUBLE, a, i).add(DoubleVector.fromArray(DOUBLE, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Double> m = DOUBLE.indexInRange(i, a.length);
+            DoubleVector.fromArray(DOUBLE, a, i, m).add(DoubleVector.fromArray(DOUBLE, b, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void mul(int[] a, int[] b, int[] out) {
+        checkLengths(a.length, b.length, out.length);
+        int i = 0;
+        for (int upper = INT.loopBound(a.length); i < upper; i += INT.length()) {
+            IntVector.fromArray(INT, a, i).mul(IntVector.fromArray(INT, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Integer> m = INT.indexInRange(i, a.length);
+            IntVector.fromArray(INT, a, i, m).mul(IntVector.fromArray(INT, b, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void mul(float[] a, float[] b, float[] out) {
+        checkLengths(a.length, b.length, out.length);
+        int i = 0;
+        for (int upper = FLOAT.loopBound(a.length); i < upper; i += FLOAT.length()) {
+            FloatVector.fromArray(FLOAT, a, i).mul(FloatVector.fromArray(FLOAT, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Float> m = FLOAT.indexInRange(i, a.length);
+            FloatVector.fromArray(FLOAT, a, i, m).mul(FloatVector.fromArray(FLOAT, b, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void mul(double[] a, double[] b, double[] out) {
+        checkLengths(a.length, b.length, out.length);
+        int i = 0;
+        for (int upper = DOUBLE.loopBound(a.length); i < upper; i += DOUBLE.length()) {
+            DoubleVector.fromArray(DOUBLE, a, i).mul(DoubleVector.fromArray(DOUBLE, b, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Double> m = DOUBLE.indexInRange(i, a.length);
+            DoubleVector.fromArray(DOUBLE, a, i, m).mul(DoubleVector.fromArray(DOUBLE, b, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void fma(int[] a, int[] b, int[] c, int[] out) {
+        checkLengths(a.length, b.length, c.length, out.length);
+        int i = 0;
+        for (int upper = INT.loopBound(a.length); i < upper; i += INT.length()) {
+            IntVector.fromArray(INT, a, i).mul(IntVector.fromArray(INT, b, i))
+                    .add(IntVector.fromArray(INT, c, i)).intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Integer> m = INT.indexInRange(i, a.length);
+            IntVector.fromArray(INT, a, i, m).mul(IntVector.fromArray(INT, b, i, m))
+                    .add(IntVector.fromArray(INT, c, i, m)).intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void fma(float[] a, float[] b, float[] c, float[] out) {
+        checkLengths(a.length, b.length, c.length, out.length);
+        int i = 0;
+        for (int upper = FLOAT.loopBound(a.length); i < upper; i += FLOAT.length()) {
+            FloatVector.fromArray(FLOAT, a, i).fma(FloatVector.fromArray(FLOAT, b, i), FloatVector.fromArray(FLOAT, c, i))
+                    .intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Float> m = FLOAT.indexInRange(i, a.length);
+            FloatVector.fromArray(FLOAT, a, i, m).fma(FloatVector.fromArray(FLOAT, b, i, m), FloatVector.fromArray(FLOAT, c, i, m))
+                    .intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public void fma(double[] a, double[] b, double[] c, double[] out) {
+        checkLengths(a.length, b.length, c.length, out.length);
+        int i = 0;
+        for (int upper = DOUBLE.loopBound(a.length); i < upper; i += DOUBLE.length()) {
+            DoubleVector.fromArray(DOUBLE, a, i).fma(DoubleVector.fromArray(DOUBLE, b, i), DoubleVector.fromArray(DOUBLE, c, i))
+                    .intoArray(out, i);
+        }
+        if (i < a.length) {
+            VectorMask<Double> m = DOUBLE.indexInRange(i, a.length);
+            DoubleVector.fromArray(DOUBLE, a, i, m).fma(DoubleVector.fromArray(DOUBLE, b, i, m), DoubleVector.fromArray(DOUBLE, c, i, m))
+                    .intoArray(out, i, m);
+        }
+    }
+
+    @Override
+    public long dot(int[] a, int[] b) {
+        checkLengths(a.length, b.length);
+        // products are computed on longs, each int vector widening into two long vectors
+        LongVector acc = LongVector.zero(LONG);
+        int i = 0;
+        for (int upper = INT.loopBound(a.length); i < upper; i += INT.length()) {
+            IntVector va = IntVector.fromArray(INT, a, i);
+            IntVector vb = IntVector.fromArray(INT, b, i);
+            acc = acc.add(widen(va, 0).mul(widen(vb, 0))).add(widen(va, 1).mul(widen(vb, 1)));
+        }
+        if (i < a.length) {
+            VectorMask<Integer> m = INT.indexInRange(i, a.length);
+            IntVector va = IntVector.fromArray(INT, a, i, m);
+            IntVector vb = IntVector.fromArray(INT, b, i, m);
+            acc = acc.add(widen(va, 0).mul(widen(vb, 0))).add(widen(va, 1).mul(widen(vb, 1)));
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        checkLengths(a.length, b.length);
+        FloatVector acc = FloatVector.zero(FLOAT);
+        int i = 0;
+        for (int upper = FLOAT.loopBound(a.length); i < upper; i += FLOAT.length()) {
+            acc = FloatVector.fromArray(FLOAT, a, i).fma(FloatVector.fromArray(FLOAT, b, i), acc);
+        }
+        if (i < a.length) {
+            VectorMask<Float> m = FLOAT.indexInRange(i, a.length);
+            acc = FloatVector.fromArray(FLOAT, a, i, m).fma(FloatVector.fromArray(FLOAT, b, i, m), acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public double dot(double[] a, double[] b) {
+        checkLengths(a.length, b.length);
+        DoubleVector acc = DoubleVector.zero(DOUBLE);
+        int i = 0;
+        for (int upper = DOUBLE.loopBound(a.length); i < upper; i += DOUBLE.length()) {
+            acc = DoubleVector.fromArray(DOUBLE, a, i).fma(DoubleVector.fromArray(DOUBLE, b, i), acc);
+        }
+        if (i < a.length) {
+            VectorMask<Double> m = DOUBLE.indexInRange(i, a.length);
+            acc = DoubleVector.fromArray(DOUBLE, a, i, m).fma(DoubleVector.fromArray(DOUBLE, b, i, m), acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public long sum(int[] a) {
+        LongVector acc = LongVector.zero(LONG);
+        int i = 0;
+        for (int upper = INT.loopBound(a.length); i < upper; i += INT.length()) {
+            IntVector v = IntVector.fromArray(INT, a, i);
+            acc = acc.add(widen(v, 0)).add(widen(v, 1));
+        }
+        if (i < a.length) {
+            IntVector v = IntVector.fromArray(INT, a, i, INT.indexInRange(i, a.length));
+            acc = acc.add(widen(v, 0)).add(widen(v, 1));
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float sum(float[] a) {
+        FloatVector acc = FloatVector.zero(FLOAT);
+        int i = 0;
+        for (int upper = FLOAT.loopBound(a.length); i < upper; i += FLOAT.length()) {
+            acc = acc.add(FloatVector.fromArray(FLOAT, a, i));
+        }
+        if (i < a.length) {
+            acc = acc.add(FloatVector.fromArray(FLOAT, a, i, FLOAT.indexInRange(i, a.length)));
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public double sum(double[] a) {
+        DoubleVector acc = DoubleVector.zero(DOUBLE);
+        int i = 0;
+        for (int upper = DOUBLE.loopBound(a.length); i < upper; i += DOUBLE.length()) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLE, a, i));
+        }
+        if (i < a.length) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLE, a, i, DOUBLE.indexInRange(i, a.length)));
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public int min(int[] a) {
+        return reduce(a, VectorOperators.MIN);
+    }
+
+    @Override
+    public float min(float[] a) {
+        return reduce(a, VectorOperators.MIN);
+    }
+
+    @Override
+    public double min(double[] a) {
+        return reduce(a, VectorOperators.MIN);
+    }
+
+    @Override
+    public int max(int[] a) {
+        return reduce(a, VectorOperators.MAX);
+    }
+
+    @Override
+    public float max(float[] a) {
+        return reduce(a, VectorOperators.MAX);
+    }
+
+    @Override
+    public double max(double[] a) {
+        return reduce(a, VectorOperators.MAX);
+    }
+
+    @Override
+    public void toUnsignedBytes(int[] src, byte[] dst) {
+        checkLengths(src.length, dst.length);
+        int i = 0;
+        for (int upper = INT.loopBound(src.length); i < upper; i += INT.length()) {
+            IntVector v = IntVector.fromArray(INT, src, i).max(0).min(255);
+            ((ByteVector) v.convertShape(VectorOperators.I2B, BYTE, 0)).intoArray(dst, i, INT_LANES);
+        }
+        if (i < src.length) {
+            IntVector v = IntVector.fromArray(INT, src, i, INT.indexInRange(i, src.length)).max(0).min(255);
+            ((ByteVector) v.convertShape(VectorOperators.I2B, BYTE, 0)).intoArray(dst, i, BYTE.indexInRange(i, src.length).and(INT_LANES));
+        }
+    }
+
+    /* one half of the lanes of v, widened to longs */
+    private static LongVector widen(IntVector v, int part) {
+        return (LongVector) v.convertShape(VectorOperators.I2L, LONG, part);
+    }
+
+    /* MIN or MAX over all the elements; masked-out tail lanes keep the accumulator value */
+    private static int reduce(int[] a, VectorOperators.Associative op) {
+        checkNotEmpty(a.length);
+        IntVector acc = IntVector.broadcast(INT, a[0]);
+        int i = 0;
+        for (int upper = INT.loopBound(a.length); i < upper; i += INT.length()) {
+            acc = acc.lanewise(op, IntVector.fromArray(INT, a, i));
+        }
+        if (i < a.length) {
+            VectorMask<Integer> m = INT.indexInRange(i, a.length);
+            acc = acc.lanewise(op, IntVector.fromArray(INT, a, i, m), m);
+        }
+        return acc.reduceLanes(op);
+    }
+
+    private static float reduce(float[] a, VectorOperators.Associative op) {
+        checkNotEmpty(a.length);
+        FloatVector acc = FloatVector.broadcast(FLOAT, a[0]);
+        int i = 0;
+        for (int upper = FLOAT.loopBound(a.length); i < upper; i += FLOAT.length()) {
+            acc = acc.lanewise(op, FloatVector.fromArray(FLOAT, a, i));
+        }
+        if (i < a.length) {
+            VectorMask<Float> m = FLOAT.indexInRange(i, a.length);
+            acc = acc.lanewise(op, FloatVector.fromArray(FLOAT, a, i, m), m);
+        }
+        return acc.reduceLanes(op);
+    }
+
+    private static double reduce(double[] a, VectorOperators.Associative op) {
+        checkNotEmpty(a.length);
+        DoubleVector acc = DoubleVector.broadcast(DOUBLE, a[0]);
+        int i = 0;
+        for (int upper = DOUBLE.loopBound(a.length); i < upper; i += DOUBLE.length()) {
+            acc = acc.lanewise(op, DoubleVector.fromArray(DOUBLE, a, i));
+        }
+        if (i < a.length) {
+            VectorMask<Double> m = DOUBLE.indexInRange(i, a.length);
+            acc = acc.lanewise(op, DoubleVector.fromArray(DOUBLE, a, i, m), m);
+        }
+        return acc.reduceLanes(op);
+    }
+}
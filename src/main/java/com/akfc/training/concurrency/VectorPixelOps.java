@@ -0,0 +1,143 @@
+package com.akfc.training.concurrency;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.akfc.training.concurrency.PixelOps.FIXED_POINT_SHIFT;
+import static com.akfc.training.concurrency.PixelOps.SEPIA;
+import static com.akfc.training.concurrency.PixelOps.THIRD;
+
+/**
+ * Vector API versions of the hottest PixelOps, giving the same results as the scalar ones.
+ *
+ * A vector holds SPECIES.length() packed pixels; each is split into red, green and
+ * blue vectors with shifts and masks, computed on lane-wise and packed back, so a
+ * pass reads and writes every pixel exactly once. Channels are clamped with lane-wise
+ * min/max and weights are fixed-point integers, there is no division or floating
+ * point conversion in the loops. As in VectorArrayKernels the tail is one masked
+ * iteration.
+ *
+ * Only loaded by PixelOps when the jdk.incubator.vector module is available.
+ */
+final class VectorPixelOps {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private VectorPixelOps() {
+    }
+
+    static PixelOp grayScale() {
+        return (pixels, from, to) -> {
+            int i = from;
+            for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length())
+                grayScale(IntVector.fromArray(SPECIES, pixels, i)).intoArray(pixels, i);
+            if (i < to) {
+                VectorMask<Integer> m = SPECIES.indexInRange(i, to);
+                grayScale(IntVector.fromArray(SPECIES, pixels, i, m)).intoArray(pixels, i, m);
+            }
+        };
+    }
+
+    private static IntVector grayScale(IntVector px) {
+        IntVector sum = red(px).add(green(px)).add(blue(px));
+        return sum.mul(THIRD).lanewise(VectorOperators.LSHR, FIXED_POINT_SHIFT).mul(0x010101);
+    }
+
+    static PixelOp sepia() {
+        return (pixels, from, to) -> {
+            int i = from;
+            for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length())
+                sepia(IntVector.fromArray(SPECIES, pixels, i)).intoArray(pixels, i);
+            if (i < to) {
+                VectorMask<Integer> m = SPECIES.indexInRange(i, to);
+                sepia(IntVector.fromArray(SPECIES, pixels, i, m)).intoArray(pixels, i, m);
+            }
+        };
+    }
+
+    private static IntVector sepia(IntVector px) {
+        IntVector red = red(px), green = green(px), blue = blue(px);
+        return pack(weighted(red, green, blue, SEPIA[0]),
+                weighted(red, green, blue, SEPIA[1]),
+                weighted(red, green, blue, SEPIA[2]));
+    }
+
+    /* (r * w[0] + g * w[1] + b * w[2]) >> FIXED_POINT_SHIFT, saturated to 255 */
+    private static IntVector weighted(IntVector red, IntVector green, IntVector blue, int[] weights) {
+        return red.mul(weights[0]).add(green.mul(weights[1])).add(blue.mul(weights[2]))
+                .lanewise(VectorOperators.LSHR, FIXED_POINT_SHIFT)
+                .min(255);
+    }
+
+    static PixelOp invert() {
+        return (pixels, from, to) -> {
+            int i = from;
+            for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length())
+                IntVector.fromArray(SPECIES, pixels, i).lanewise(VectorOperators.XOR, 0xFFFFFF).intoArray(pixels, i);
+            if (i < to) {
+                VectorMask<Integer> m = SPECIES.indexInRange(i, to);
+                IntVector.fromArray(SPECIES, pixels, i, m).lanewise(VectorOperators.XOR, 0xFFFFFF).intoArray(pixels, i, m);
+            }
+        };
+    }
+
+    static PixelOp adjustBrightness(int val) {
+        return (pixels, from, to) -> {
+            int i = from;
+            for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length())
+                adjustBrightness(IntVector.fromArray(SPECIES, pixels, i), val).intoArray(pixels, i);
+            if (i < to) {
+                VectorMask<Integer> m = SPECIES.indexInRange(i, to);
+                adjustBrightness(IntVector.fromArray(SPECIES, pixels, i, m), val).intoArray(pixels, i, m);
+            }
+        };
+    }
+
+    private static IntVector adjustBrightness(IntVector px, int val) {
+        return pack(saturate(red(px).add(val)), saturate(green(px).add(val)), saturate(blue(px).add(val)));
+    }
+
+    static PixelOp adjustContrast(int factor) {
+        return (pixels, from, to) -> {
+            int i = from;
+            for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length())
+                adjustContrast(IntVector.fromArray(SPECIES, pixels, i), factor).intoArray(pixels, i);
+            if (i < to) {
+                VectorMask<Integer> m = SPECIES.indexInRange(i, to);
+                adjustContrast(IntVector.fromArray(SPECIES, pixels, i, m), factor).intoArray(pixels, i, m);
+            }
+        };
+    }
+
+    private static IntVector adjustContrast(IntVector px, int factor) {
+        return pack(contrast(red(px), factor), contrast(green(px), factor), contrast(blue(px), factor));
+    }
+
+    private static IntVector contrast(IntVector channel, int factor) {
+        return saturate(channel.sub(128).mul(factor).add(128));
+    }
+
+    private static IntVector red(IntVector px) {
+        return px.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+    }
+
+    private static IntVector green(IntVector px) {
+        return px.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+    }
+
+    private static IntVector blue(IntVector px) {
+        return px.and(0xFF);
+    }
+
+    /* clamps every lane to [0, 255] */
+    private static IntVector saturate(IntVector channel) {
+        return channel.max(0).min(255);
+    }
+
+    /* packs channel vectors that are already in [0, 255] */
+    private static IntVector pack(IntVector red, IntVector green, IntVector blue) {
+        return red.lanewise(VectorOperators.LSHL, 16).or(green.lanewise(VectorOperators.LSHL, 8)).or(blue);
+    }
+}
@@ -0,0 +1,49 @@
+package com.akfc.training.concurrency;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a thread does while it waits for a lock-free queue to change, e.g. in put() on
+ * a full RingBuffer.
+ *
+ * There is no lock hence no condition to wait on: the waiting thread polls, and the
+ * strategy decides how much CPU that costs against how fast it notices the change.
+ * idle(round) is called with round = 0, 1, 2... for as long as the wait lasts.
+ */
+public enum WaitStrategy {
+
+    /* busy spin, lowest latency, burns a core per waiting thread */
+    SPIN {
+        @Override
+        public void idle(int round) {
+            Thread.onSpinWait();
+        }
+    },
+    /* spins a little, then gives the core away to other threads */
+    YIELD {
+        @Override
+        public void idle(int round) {
+            if (round < SPINS)
+                Thread.onSpinWait();
+            else
+                Thread.yield();
+        }
+    },
+    /* spins, yields, then sleeps PARK_NANOS at a time: near zero CPU on long waits */
+    PARK {
+        @Override
+        public void idle(int round) {
+            if (round < SPINS)
+                Thread.onSpinWait();
+            else if (round < 2 * SPINS)
+                Thread.yield();
+            else
+                LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+
+    static final int SPINS = 100;
+    static final long PARK_NANOS = 50_000;
+
+    public abstract void idle(int round);
+}
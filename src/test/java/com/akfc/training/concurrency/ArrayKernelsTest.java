@@ -0,0 +1,109 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrayKernelsTest {
+
+    private final ArrayKernels scalar = new ScalarArrayKernels();
+    private final ArrayKernels vector = new VectorArrayKernels();
+
+    // lengths around multiples of every possible vector length, including the tail-only case
+    private static final int[] LENGTHS = {1, 3, 15, 16, 17, 63, 64, 1000, 1027};
+
+    @Test
+    void pickedImplementationMatchesModulePresence() {
+        assertEquals(ArrayKernels.isVectorApiAvailable(), ArrayKernels.get() instanceof VectorArrayKernels);
+    }
+
+    @Test
+    void intKernels() {
+        Random random = new Random(1);
+        for (int n : LENGTHS) {
+            int[] a = random.ints(n).toArray(), b = random.ints(n).toArray(), c = random.ints(n).toArray();
+            int[] expected = new int[n], actual = new int[n];
+            scalar.add(a, b, expected);
+            vector.add(a, b, actual);
+            assertArrayEquals(expected, actual);
+            scalar.mul(a, b, expected);
+            vector.mul(a, b, actual);
+            assertArrayEquals(expected, actual);
+            scalar.fma(a, b, c, expected);
+            vector.fma(a, b, c, actual);
+            assertArrayEquals(expected, actual);
+            assertEquals(scalar.dot(a, b), vector.dot(a, b));
+            assertEquals(scalar.sum(a), vector.sum(a));
+            assertEquals(scalar.min(a), vector.min(a));
+            assertEquals(scalar.max(a), vector.max(a));
+        }
+    }
+
+    @Test
+    void intSumDoesNotOverflow() {
+        int[] a = new int[100];
+        Arrays.fill(a, Integer.MAX_VALUE);
+        assertEquals(100L * Integer.MAX_VALUE, vector.sum(a));
+        assertEquals(100L * Integer.MAX_VALUE, scalar.sum(a));
+    }
+
+    @Test
+    void floatingPointKernels() {
+        Random random = new Random(2);
+        for (int n : LENGTHS) {
+            float[] a = new float[n], b = new float[n], c = new float[n];
+            double[] x = random.doubles(n, -1, 1).toArray(), y = random.doubles(n, -1, 1).toArray();
+            for (int i = 0; i < n; i++) {
+                a[i] = random.nextFloat() - 0.5f;
+                b[i] = random.nextFloat() - 0.5f;
+                c[i] = random.nextFloat() - 0.5f;
+            }
+            float[] expected = new float[n], actual = new float[n];
+            scalar.fma(a, b, c, expected);
+            vector.fma(a, b, c, actual);
+            assertArrayEquals(expected, actual);
+            scalar.add(a, b, expected);
+            vector.add(a, b, actual);
+            assertArrayEquals(expected, actual);
+            // reductions run in a different order, compare with a tolerance
+            assertEquals(scalar.dot(a, b), vector.dot(a, b), 1e-3f);
+            assertEquals(scalar.sum(a), vector.sum(a), 1e-3f);
+            assertEquals(scalar.min(a), vector.min(a));
+            assertEquals(scalar.max(a), vector.max(a));
+
+            double[] expectedDoubles = new double[n], actualDoubles = new double[n];
+            scalar.mul(x, y, expectedDoubles);
+            vector.mul(x, y, actualDoubles);
+            assertArrayEquals(expectedDoubles, actualDoubles);
+            assertEquals(scalar.dot(x, y), vector.dot(x, y), 1e-9);
+            assertEquals(scalar.sum(x), vector.sum(x), 1e-9);
+            assertEquals(scalar.min(x), vector.min(x));
+            assertEquals(scalar.max(x), vector.max(x));
+        }
+    }
+
+    @Test
+    void unsignedByteConversionClamps() {
+        Random random = new Random(3);
+        for (int n : LENGTHS) {
+            int[] src = random.ints(n, -300, 600).toArray();
+            byte[] expected = new byte[n], actual = new byte[n];
+            scalar.toUnsignedBytes(src, expected);
+            vector.toUnsignedBytes(src, actual);
+            assertArrayEquals(expected, actual);
+        }
+        byte[] bytes = new byte[3];
+        vector.toUnsignedBytes(new int[]{-5, 200, 999}, bytes);
+        assertArrayEquals(new byte[]{0, (byte) 200, (byte) 255}, bytes);
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> vector.add(new int[2], new int[3], new int[2]));
+        assertThrows(IllegalArgumentException.class, () -> scalar.min(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> vector.max(new float[0]));
+    }
+}
@@ -0,0 +1,148 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageWriterSpi;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchImageProcessorTest {
+
+    @Test
+    void bulkRasterConversionsMatchGetRGB() {
+        BufferedImage rgb = ImageProcessingTest.randomImage(29, 17, 3);
+        for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage buff = new BufferedImage(29, 17, type);
+            buff.getGraphics().drawImage(rgb, 0, 0, null);
+            PackedImage packed = PackedImage.fromBufferedImage(buff);
+            for (int y = 0; y < 17; y++)
+                for (int x = 0; x < 29; x++)
+                    assertEquals(buff.getRGB(x, y) & 0xFFFFFF, packed.get(x, y));
+            // a sub-image shares the parent raster and must not be read as a whole buffer
+            PackedImage sub = PackedImage.fromBufferedImage(buff.getSubimage(3, 2, 10, 5));
+            assertEquals(buff.getRGB(3, 2) & 0xFFFFFF, sub.get(0, 0));
+            assertEquals(buff.getRGB(12, 6) & 0xFFFFFF, sub.get(9, 4));
+        }
+        PackedImage packed = PackedImage.fromBufferedImage(rgb);
+        assertArrayEquals(packed.getPixels(), PackedImage.fromBufferedImage(packed.toBufferedImage()).getPixels());
+    }
+
+    @Test
+    void processesEveryImageOfTheTree(@TempDir Path dir) throws IOException, InterruptedException {
+        Path input = dir.resolve("in"), output = dir.resolve("out");
+        Files.createDirectories(input.resolve("nested"));
+        for (int i = 0; i < 5; i++)
+            ImageIO.write(ImageProcessingTest.randomImage(40 + i, 30, i), "png", input.resolve("img" + i + ".png").toFile());
+        ImageIO.write(ImageProcessingTest.randomImage(20, 20, 9), "png", input.resolve("nested/deep.png").toFile());
+        // same base name as img0.png, both must be written
+        ImageIO.write(ImageProcessingTest.randomImage(10, 10, 7), "bmp", input.resolve("img0.bmp").toFile());
+        Files.writeString(input.resolve("notes.txt"), "not an image");
+        Files.writeString(input.resolve("broken.png"), "not a png either");
+
+        ImagePipeline pipeline = new ImagePipeline().invert();
+        BatchImageProcessor.Report report = new BatchImageProcessor(pipeline, 3, 2, 1, "png").process(input, output);
+
+        assertEquals(7, report.images());
+        assertEquals(1, report.failures());
+        assertTrue(report.peakHeapBytes() > 0);
+        BufferedImage source = ImageIO.read(input.resolve("img2.png").toFile());
+        BufferedImage written = ImageIO.read(output.resolve("img2.png.png").toFile());
+        assertArrayEquals(pipeline.apply(PackedImage.fromBufferedImage(source)).getPixels(),
+                PackedImage.fromBufferedImage(written).getPixels());
+        assertTrue(Files.exists(output.resolve("nested/deep.png.png")));
+        assertEquals(40, ImageIO.read(output.resolve("img0.png.png").toFile()).getWidth());
+        assertEquals(10, ImageIO.read(output.resolve("img0.bmp.png").toFile()).getWidth());
+    }
+
+    @Test
+    void deadWriterStopsTheBatch(@TempDir Path dir) throws IOException {
+        Path input = dir.resolve("in");
+        Files.createDirectories(input);
+        for (int i = 0; i < 20; i++)
+            ImageIO.write(ImageProcessingTest.randomImage(10, 10, i), "png", input.resolve("img" + i + ".png").toFile());
+        CrashingWriterSpi spi = new CrashingWriterSpi();
+        IIORegistry.getDefaultInstance().registerServiceProvider(spi);
+        try {
+            BatchImageProcessor processor = new BatchImageProcessor(new ImagePipeline().invert(), 2, 2, 1, "crash");
+            // the decoders fill the queue and would wait forever for the dead writers
+            IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> processor.process(input, dir.resolve("out"))));
+            assertInstanceOf(CrashError.class, e.getCause());
+        } finally {
+            IIORegistry.getDefaultInstance().deregisterServiceProvider(spi);
+        }
+    }
+
+    private static final class CrashError extends Error {
+    }
+
+    /* writers of the "crash" format, which die with an Error on the first image */
+    private static final class CrashingWriterSpi extends ImageWriterSpi {
+
+        CrashingWriterSpi() {
+            super("test", "1", new String[]{"crash"}, new String[]{"crash"}, new String[]{"image/x-crash"},
+                    CrashingWriterSpi.class.getName(), STANDARD_OUTPUT_TYPE, null, false, null, null, null, null,
+                    false, null, null, null, null);
+        }
+
+        @Override
+        public boolean canEncodeImage(ImageTypeSpecifier type) {
+            return true;
+        }
+
+        @Override
+        public ImageWriter createWriterInstance(Object extension) {
+            return new ImageWriter(this) {
+                @Override
+                public IIOMetadata getDefaultStreamMetadata(ImageWriteParam param) {
+                    return null;
+                }
+
+                @Override
+                public IIOMetadata getDefaultImageMetadata(ImageTypeSpecifier type, ImageWriteParam param) {
+                    return null;
+                }
+
+                @Override
+                public IIOMetadata convertStreamMetadata(IIOMetadata inData, ImageWriteParam param) {
+                    return null;
+                }
+
+                @Override
+                public IIOMetadata convertImageMetadata(IIOMetadata inData, ImageTypeSpecifier type,
+                                                        ImageWriteParam param) {
+                    return null;
+                }
+
+                @Override
+                public void write(IIOMetadata streamMetadata, IIOImage image, ImageWriteParam param) {
+                    throw new CrashError();
+                }
+            };
+        }
+
+        @Override
+        public String getDescription(Locale locale) {
+            return "crashing test writer";
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ConvolutionEngineTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+    private final ConvolutionEngine engine = new ConvolutionEngine(POOL);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    static PackedImage randomImage(int width, int height, long seed) {
+        return new PackedImage(width, height, new Random(seed).ints(width * height, 0, 0x1000000).toArray());
+    }
+
+    /* straightforward wrap-around convolution, one channel at a time */
+    private static PackedImage reference(PackedImage src, int[][] kernel, double factor) {
+        int w = src.getWidth(), h = src.getHeight(), r = kernel.length / 2;
+        PackedImage dst = new PackedImage(w, h);
+        for (int i = 0; i < h; i++) {
+            for (int j = 0; j < w; j++) {
+                int[] channels = new int[3];
+                for (int k = 0; k < 3; k++) {
+                    int sum = 0;
+                    for (int ky = 0; ky < kernel.length; ky++)
+                        for (int kx = 0; kx < kernel.length; kx++)
+                            sum += kernel[ky][kx] * PackedImage.channel(
+                                    src.get(Math.floorMod(j + kx - r, w), Math.floorMod(i + ky - r, h)), k);
+                    channels[k] = PackedImage.clamp((int) (sum * factor));
+                }
+                dst.set(j, i, PackedImage.rgb(channels[0], channels[1], channels[2]));
+            }
+        }
+        return dst;
+    }
+
+    @Test
+    void fullKernelsMatchReference() {
+        int[][] sharpen = {{0, -1, 0}, {-1, 5, -1}, {0, -1, 0}};
+        int[][] fiveByFive = {{1, 0, 2, 0, 1}, {0, -1, 3, -1, 0}, {2, 3, -8, 3, 2}, {0, -1, 3, -1, 0}, {1, 0, 2, 0, 1}};
+        for (int[] size : new int[][]{{64, 100}, {7, 3}, {2, 2}, {1, 1}}) {
+            PackedImage src = randomImage(size[0], size[1], size[0]);
+            assertArrayEquals(reference(src, sharpen, 1.0).getPixels(), engine.convolve(src, sharpen, 1.0).getPixels());
+            assertArrayEquals(reference(src, fiveByFive, 0.25).getPixels(), engine.convolve(src, fiveByFive, 0.25).getPixels());
+        }
+    }
+
+    @Test
+    void separableKernelsMatchFullKernel() {
+        int[][] gaussian = {{1, 2, 1}, {2, 4, 2}, {1, 2, 1}};
+        for (int[] size : new int[][]{{64, 100}, {5, 9}, {1, 2}}) {
+            PackedImage src = randomImage(size[0], size[1], size[1]);
+            assertArrayEquals(reference(src, gaussian, 1.0 / 16).getPixels(),
+                    engine.convolveSeparable(src, new int[]{1, 2, 1}, new int[]{1, 2, 1}, 1.0 / 16).getPixels());
+        }
+    }
+}
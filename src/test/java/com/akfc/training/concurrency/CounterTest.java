@@ -0,0 +1,61 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterTest {
+
+    private static final int THREADS = 8, INCREMENTS = 100_000;
+
+    /* THREADS threads incrementing counter INCREMENTS times each */
+    private static void hammer(Counter counter) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < INCREMENTS; i++)
+                    counter.increment();
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+    }
+
+    @Test
+    void stripedCounterIsExact() throws InterruptedException {
+        // fewer stripes than threads, so that threads collide and move
+        StripedCounter counter = new StripedCounter(3);
+        assertEquals(4, counter.stripes());
+        hammer(counter);
+        counter.add(-5);
+        assertEquals((long) THREADS * INCREMENTS - 5, counter.get());
+    }
+
+    @Test
+    void approximateCounterStaysWithinItsBound() throws InterruptedException {
+        ApproximateCounter counter = new ApproximateCounter(1000, 4);
+        hammer(counter);
+        long exact = (long) THREADS * INCREMENTS;
+        assertEquals(exact, counter.exact());
+        assertTrue(counter.get() <= exact && counter.get() >= exact - counter.maxError(), counter.get() + " vs " + exact);
+        assertThrows(IllegalArgumentException.class, () -> counter.add(-1));
+    }
+
+    @Test
+    void snapshotCounterRefreshesAfterMaxStale() throws InterruptedException {
+        SnapshotCounter counter = new SnapshotCounter(1, TimeUnit.HOURS);
+        hammer(counter);
+        assertEquals(0, counter.get());
+        assertEquals((long) THREADS * INCREMENTS, counter.sum());
+
+        SnapshotCounter fresh = new SnapshotCounter(0, TimeUnit.NANOSECONDS);
+        hammer(fresh);
+        Thread.sleep(1);
+        assertEquals((long) THREADS * INCREMENTS, fresh.get());
+    }
+}
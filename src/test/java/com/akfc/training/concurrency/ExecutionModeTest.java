@@ -0,0 +1,77 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionModeTest {
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty(ExecutionMode.MODE_PROPERTY);
+        System.clearProperty(ExecutionMode.THREADS_PROPERTY);
+    }
+
+    @Test
+    void readsTheConfiguration() {
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.configured());
+        assertEquals(Runtime.getRuntime().availableProcessors(), ExecutionMode.configuredThreads());
+        System.setProperty(ExecutionMode.MODE_PROPERTY, "fork-join");
+        assertEquals(ExecutionMode.FORK_JOIN, ExecutionMode.configured());
+        System.setProperty(ExecutionMode.MODE_PROPERTY, "Platform");
+        System.setProperty(ExecutionMode.THREADS_PROPERTY, "3");
+        try (ExecutorService executor = ExecutionMode.newConfiguredExecutor()) {
+            assertEquals(3, assertInstanceOf(ThreadPoolExecutor.class, executor).getCorePoolSize());
+        }
+        System.setProperty(ExecutionMode.MODE_PROPERTY, "green");
+        assertThrows(IllegalArgumentException.class, ExecutionMode::configured);
+        assertThrows(IllegalArgumentException.class, () -> ExecutionMode.PLATFORM.newExecutor(0));
+    }
+
+    @Test
+    void everyModeRunsBlockingTasks() throws InterruptedException, ExecutionException {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            try (ExecutorService executor = mode.newExecutor(4)) {
+                List<Callable<Boolean>> tasks = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    tasks.add(() -> {
+                        Thread.sleep(1);
+                        return Thread.currentThread().isVirtual();
+                    });
+                }
+                for (Future<Boolean> result : executor.invokeAll(tasks))
+                    assertEquals(mode == ExecutionMode.VIRTUAL, result.get(), mode.toString());
+            }
+        }
+    }
+
+    @Test
+    void virtualThreadsDoNotQueueBehindBlockedTasks() throws InterruptedException {
+        // 1000 tasks blocked 100 ms each would take 25 s on a pool of 4 threads
+        long start = System.nanoTime();
+        try (ExecutorService executor = ExecutionMode.VIRTUAL.newExecutor(4)) {
+            for (int i = 0; i < 1000; i++) {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        }
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+}
@@ -0,0 +1,61 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExternalMergeSorterTest {
+
+    @TempDir
+    Path dir;
+
+    private static int[] read(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int[] values = new int[bytes.remaining() / Integer.BYTES];
+        bytes.asIntBuffer().get(values);
+        return values;
+    }
+
+    private static void write(Path file, int[] values) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Integer.BYTES);
+        bytes.asIntBuffer().put(values);
+        Files.write(file, bytes.array());
+    }
+
+    @Test
+    void sortsWithIntermediateMergePasses() throws IOException {
+        int[] values = new Random(1).ints(100_003).toArray();
+        Path input = dir.resolve("input.bin"), output = dir.resolve("output.bin");
+        write(input, values);
+        // 1000 runs merged 8 at a time needs several passes
+        new ExternalMergeSorter(input, output, dir, 100, 8).sort();
+        Arrays.sort(values);
+        assertArrayEquals(values, read(output));
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void sortsSingleRunAndEmptyFile() throws IOException {
+        int[] values = new Random(2).ints(5000).toArray();
+        Path input = dir.resolve("input.bin"), output = dir.resolve("output.bin");
+        write(input, values);
+        new ExternalMergeSorter(input, output).sort();
+        Arrays.sort(values);
+        assertArrayEquals(values, read(output));
+
+        write(input, new int[0]);
+        new ExternalMergeSorter(input, output).sort();
+        assertEquals(0, Files.size(output));
+    }
+}
@@ -0,0 +1,97 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FanOutTest {
+
+    private static final Duration LONG = Duration.ofSeconds(30);
+
+    private final Queue<FanOut.Timing> timings = new ConcurrentLinkedQueue<>();
+    private final FanOut fanOut = new FanOut(timings::add);
+
+    /* returns value after millis */
+    private static Callable<Integer> slow(int value, long millis) {
+        return () -> {
+            Thread.sleep(millis);
+            return value;
+        };
+    }
+
+    private static Callable<Integer> failing(long millis) {
+        return () -> {
+            Thread.sleep(millis);
+            throw new IllegalStateException("failed after " + millis + " ms");
+        };
+    }
+
+    private FanOut.Outcome outcome(int index) {
+        return timings.stream().filter(t -> t.index() == index).findFirst().orElseThrow().outcome();
+    }
+
+    @Test
+    void allOfKeepsTheOrderOfTheCalls() throws Exception {
+        assertEquals(List.of(1, 2, 3), fanOut.allOf(List.of(slow(1, 30), slow(2, 10), slow(3, 20)), LONG));
+        assertEquals(3, timings.size());
+        for (FanOut.Timing timing : timings) {
+            assertEquals(FanOut.Outcome.SUCCESS, timing.outcome());
+            assertTrue(timing.latency().toMillis() >= 10, timing.toString());
+        }
+    }
+
+    @Test
+    void allOfFailsFastAndCancelsTheOthers() {
+        long start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> fanOut.allOf(List.of(slow(1, 20_000), failing(10)), LONG));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        assertEquals(FanOut.Outcome.CANCELLED, outcome(0));
+        assertEquals(FanOut.Outcome.FAILED, outcome(1));
+    }
+
+    @Test
+    void deadline() {
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class,
+                () -> fanOut.allOf(List.of(slow(1, 10), slow(2, 20_000)), Duration.ofMillis(100)));
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        assertEquals(FanOut.Outcome.SUCCESS, outcome(0));
+        assertEquals(FanOut.Outcome.CANCELLED, outcome(1));
+    }
+
+    @Test
+    void anyOfReturnsTheFirstSuccess() throws Exception {
+        assertEquals(2, fanOut.anyOf(List.of(slow(1, 20_000), slow(2, 50), failing(5)), LONG));
+        assertEquals(FanOut.Outcome.CANCELLED, outcome(0));
+        assertThrows(ExecutionException.class, () -> fanOut.anyOf(List.of(failing(1), failing(2)), LONG));
+        assertThrows(IllegalArgumentException.class, () -> fanOut.anyOf(List.<Callable<Integer>>of(), LONG));
+    }
+
+    @Test
+    void firstSuccesses() throws Exception {
+        List<Callable<Integer>> calls = List.of(slow(1, 20_000), slow(2, 100), failing(5), slow(4, 10));
+        assertEquals(List.of(4, 2), fanOut.firstSuccesses(calls, 2, LONG));
+        assertEquals(FanOut.Outcome.CANCELLED, outcome(0));
+
+        // two failures out of three calls: one success is the best left, no need to wait for it
+        long start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> fanOut.firstSuccesses(List.of(failing(5), slow(2, 20_000), failing(10)), 2, LONG));
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        assertEquals(1, e.getSuppressed().length);
+        assertThrows(IllegalArgumentException.class, () -> fanOut.firstSuccesses(calls, 5, LONG));
+    }
+}
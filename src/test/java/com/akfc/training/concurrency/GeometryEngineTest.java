@@ -0,0 +1,55 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeometryEngineTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+    private final GeometryEngine engine = new GeometryEngine(POOL);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void exactTransformsMatchPixelLoops() {
+        // spans several tasks and tiles, with partial tiles on both sides
+        PackedImage src = ConvolutionEngineTest.randomImage(301, 77, 11);
+        int w = src.getWidth(), h = src.getHeight();
+        PackedImage transposed = engine.transpose(src), right = engine.rotateRight(src), left = engine.rotateLeft(src);
+        PackedImage vertical = engine.flipVertically(src), horizontal = engine.flipHorizontally(src);
+        assertEquals(h, right.getWidth());
+        assertEquals(w, right.getHeight());
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int px = src.get(x, y);
+                assertEquals(px, transposed.get(y, x));
+                assertEquals(px, right.get(h - 1 - y, x));
+                assertEquals(px, left.get(y, w - 1 - x));
+                assertEquals(px, vertical.get(w - 1 - x, y));
+                assertEquals(px, horizontal.get(x, h - 1 - y));
+            }
+        }
+    }
+
+    @Test
+    void rotationSamplesTheSource() {
+        PackedImage src = ConvolutionEngineTest.randomImage(65, 65, 12);
+        assertArrayEquals(src.getPixels(), engine.rotate(src, 0).getPixels());
+        // around the exact center of an odd square, a quarter turn is lossless
+        assertArrayEquals(engine.rotateLeft(src).getPixels(), engine.rotate(src, 90).getPixels());
+        assertArrayEquals(engine.rotateRight(src).getPixels(), engine.rotate(src, -90).getPixels());
+
+        int[] gradient = {0, 0x646464, 0xC8C8C8};
+        assertEquals(0x969696, GeometryEngine.bilinear(gradient, 3, 1, 1.5, 0));
+        assertEquals(0, GeometryEngine.bilinear(gradient, 3, 1, 5, 0));
+        assertArrayEquals(new int[]{0xC8C8C8, 0x646464, 0}, engine.rotate(new PackedImage(3, 1, gradient), 180).getPixels());
+    }
+}
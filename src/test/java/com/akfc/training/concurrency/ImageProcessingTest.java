@@ -0,0 +1,101 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImageProcessingTest {
+
+    static BufferedImage randomImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage buff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                buff.setRGB(x, y, random.nextInt(0x1000000));
+        return buff;
+    }
+
+    @Test
+    void pointTransforms() {
+        BufferedImage buff = randomImage(37, 23, 1);
+        ImageProcessing ip = new ImageProcessing(buff);
+        ip.invert();
+        PackedImage inverted = ip.getTransformedImage();
+        ip.grayScale();
+        PackedImage gray = ip.getTransformedImage();
+        for (int y = 0; y < 23; y++) {
+            for (int x = 0; x < 37; x++) {
+                int px = buff.getRGB(x, y);
+                int r = (px >> 16) & 0xFF, g = (px >> 8) & 0xFF, b = px & 0xFF;
+                assertEquals(PackedImage.rgb(255 - r, 255 - g, 255 - b), inverted.get(x, y));
+                int mean = (r + g + b) / 3;
+                assertEquals(PackedImage.rgb(mean, mean, mean), gray.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    void geometricTransforms() {
+        BufferedImage buff = randomImage(5, 3, 2);
+        ImageProcessing ip = new ImageProcessing(buff);
+        ip.rightRotate();
+        PackedImage right = ip.getTransformedImage();
+        assertEquals(3, right.getWidth());
+        assertEquals(5, right.getHeight());
+        // top-left corner ends up in the top-right corner
+        assertEquals(buff.getRGB(0, 0) & 0xFFFFFF, right.get(2, 0));
+        ip.leftRotate();
+        assertEquals(buff.getRGB(0, 0) & 0xFFFFFF, ip.getTransformedImage().get(0, 4));
+        ip.flipVertically();
+        assertEquals(buff.getRGB(4, 1) & 0xFFFFFF, ip.getTransformedImage().get(0, 1));
+        ip.flipHorizontally();
+        assertEquals(buff.getRGB(3, 0) & 0xFFFFFF, ip.getTransformedImage().get(3, 2));
+        ip.scale(2, ResamplingEngine.Filter.NEAREST);
+        assertEquals(10, ip.getTransformedImage().getWidth());
+        assertEquals(buff.getRGB(2, 1) & 0xFFFFFF, ip.getTransformedImage().get(5, 3));
+    }
+
+    @Test
+    void averageColorDoesNotOverflow() {
+        BufferedImage buff = new BufferedImage(3000, 3000, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 3000; y++)
+            for (int x = 0; x < 3000; x++)
+                buff.setRGB(x, y, 0xFFFFFF);
+        assertArrayEquals(new int[]{255, 255, 255}, new ImageProcessing(buff).averageColor());
+    }
+
+    /* applies each operation as its own full-frame pass */
+    private static PackedImage unfused(PackedImage src, PixelOp... ops) {
+        PackedImage result = src.copy();
+        for (PixelOp op : ops)
+            op.apply(result.getPixels(), 0, result.getPixels().length);
+        return result;
+    }
+
+    @Test
+    void fusedPipelineMatchesSeparatePasses() {
+        // several tiles and a partial last one
+        BufferedImage buff = randomImage(301, 157, 4);
+        ImageProcessing ip = new ImageProcessing(buff);
+        PackedImage source = PackedImage.fromBufferedImage(buff);
+        int[][] sharpen = {{0, -1, 0}, {-1, 5, -1}, {0, -1, 0}};
+
+        ip.pipeline().adjustBrightness(20).sepia().adjustContrast(2)
+                .convolve(sharpen, 1.0)
+                .invert().swap(1).dropLayer(2);
+        PackedImage expected = unfused(source, PixelOps.adjustBrightness(20), PixelOps.sepia(), PixelOps.adjustContrast(2));
+        expected = new ConvolutionEngine().convolve(expected, sharpen, 1.0);
+        expected = unfused(expected, PixelOps.invert(), PixelOps.swap(1), PixelOps.dropLayer(2));
+        assertArrayEquals(expected.getPixels(), ip.getTransformedImage().getPixels());
+
+        // an eager transform discards the pending pipeline, the source is never modified
+        ip.pipeline().invert();
+        ip.grayScale();
+        assertArrayEquals(unfused(source, PixelOps.grayScale()).getPixels(), ip.getTransformedImage().getPixels());
+        assertArrayEquals(source.getPixels(), new ImagePipeline().apply(source).getPixels());
+    }
+}
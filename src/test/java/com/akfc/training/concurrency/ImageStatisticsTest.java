@@ -0,0 +1,87 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageStatisticsTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void matchesSequentialComputation() {
+        // several leaves, the last one partial
+        PackedImage image = ConvolutionEngineTest.randomImage(401, 399, 31);
+        ImageStatistics stats = ImageStatistics.of(image, POOL);
+        int[] pixels = image.getPixels();
+        assertEquals(pixels.length, stats.count());
+        for (int k = 0; k < 3; k++) {
+            long[] histogram = new long[256];
+            int[] values = new int[pixels.length];
+            double sum = 0;
+            for (int i = 0; i < pixels.length; i++) {
+                values[i] = PackedImage.channel(pixels[i], k);
+                histogram[values[i]]++;
+                sum += values[i];
+            }
+            double mean = sum / pixels.length, squares = 0;
+            for (int v : values)
+                squares += (v - mean) * (v - mean);
+            Arrays.sort(values);
+            assertArrayEquals(histogram, stats.histogram(k));
+            assertEquals(values[0], stats.min(k));
+            assertEquals(values[values.length - 1], stats.max(k));
+            assertEquals(mean, stats.mean(k), 1e-9);
+            assertEquals(squares / pixels.length, stats.variance(k), 1e-6);
+            assertEquals(values[(values.length - 1) / 2], stats.median(k));
+            assertEquals(values[(int) Math.ceil(0.9 * values.length) - 1], stats.percentile(k, 0.9));
+        }
+    }
+
+    @Test
+    void autoLevelsStretchesEveryChannel() {
+        int[] pixels = new int[1000];
+        for (int i = 0; i < pixels.length; i++)
+            pixels[i] = PackedImage.rgb(50 + i % 101, 100 + i % 51, 7);
+        PackedImage image = new PackedImage(100, 10, pixels);
+        ImageStatistics stats = ImageStatistics.of(image);
+
+        PackedImage levelled = new ImagePipeline().map(stats.autoLevels(0)).apply(image);
+        ImageStatistics after = ImageStatistics.of(levelled);
+        assertEquals(0, after.min(0));
+        assertEquals(255, after.max(0));
+        assertEquals(0, after.min(1));
+        assertEquals(255, after.max(1));
+        // a flat channel has no range to stretch
+        assertEquals(7, after.max(2));
+
+        // one range for all channels: [7, 150]
+        PackedImage contrasted = new ImagePipeline().autoContrast(0).apply(image);
+        assertEquals(PackedImage.rgb(77, 166, 0), contrasted.get(0, 0));
+        assertArrayEquals(new ImagePipeline().map(stats.autoContrast(0)).apply(image).getPixels(), contrasted.getPixels());
+    }
+
+    @Test
+    void emptyImageHasNoStatistics() {
+        ImageStatistics stats = ImageStatistics.of(new PackedImage(0, 5));
+        assertEquals(0, stats.count());
+        assertArrayEquals(new long[256], stats.histogram(1));
+        assertThrows(IllegalStateException.class, () -> stats.min(0));
+        assertThrows(IllegalStateException.class, () -> stats.max(0));
+        assertThrows(IllegalStateException.class, () -> stats.mean(0));
+        assertThrows(IllegalStateException.class, () -> stats.variance(0));
+        assertThrows(IllegalStateException.class, () -> stats.standardDeviation(0));
+        assertThrows(IllegalStateException.class, stats::meanColor);
+    }
+}
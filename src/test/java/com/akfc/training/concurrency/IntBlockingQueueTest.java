@@ -0,0 +1,66 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntBlockingQueueTest {
+
+    @Test
+    void boundedFifoWithBatches() throws InterruptedException {
+        IntBlockingQueue queue = IntBlockingQueue.mpmc(6);
+        assertEquals(8, queue.capacity());
+        int[] batch = new int[10];
+        assertEquals(0, queue.drainTo(batch, 0, 10));
+        assertEquals(8, queue.offerAll(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, 0, 10));
+        assertFalse(queue.offer(8));
+        assertFalse(queue.offer(8, 5, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(0, queue.take());
+        assertEquals(3, queue.drainTo(batch, 2, 3));
+        assertArrayEquals(new int[]{0, 0, 1, 2, 3, 0, 0, 0, 0, 0}, batch);
+        // wraps around
+        assertTrue(queue.offer(8));
+        queue.putAll(new int[]{9, 10, 11}, 0, 3);
+        assertEquals(8, queue.take(batch, 0, 10));
+        assertArrayEquals(new int[]{4, 5, 6, 7, 8, 9, 10, 11}, Arrays.copyOf(batch, 8));
+        assertTrue(queue.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> queue.drainTo(batch, 5, 6));
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, queue::take);
+    }
+
+    @Test
+    void singleProducerSingleConsumerKeepsOrder() throws InterruptedException {
+        IntBlockingQueue queue = IntBlockingQueue.spsc(64, WaitStrategy.YIELD);
+        int count = 300_000;
+        Thread producer = new Thread(() -> {
+            try {
+                int[] batch = new int[37];
+                for (int i = 0; i < count; i += batch.length) {
+                    int n = Math.min(batch.length, count - i);
+                    for (int k = 0; k < n; k++)
+                        batch[k] = i + k;
+                    queue.putAll(batch, 0, n);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        int[] batch = new int[50];
+        for (int next = 0; next < count; ) {
+            int n = queue.take(batch, 0, batch.length);
+            for (int k = 0; k < n; k++)
+                assertEquals(next++, batch[k]);
+        }
+        producer.join();
+    }
+}
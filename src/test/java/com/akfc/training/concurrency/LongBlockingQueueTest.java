@@ -0,0 +1,60 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongBlockingQueueTest {
+
+    @Test
+    void multipleProducersAndConsumersSeeEveryValueOnce() throws InterruptedException {
+        LongBlockingQueue queue = LongBlockingQueue.mpmc(128, WaitStrategy.YIELD);
+        int producers = 3, consumers = 3, count = 50_000;
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * count);
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * count;
+            threads[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++)
+                        queue.put(base + i);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                try {
+                    long[] batch = new long[16];
+                    while (true) {
+                        int n = queue.take(batch, 0, batch.length);
+                        for (int k = 0; k < n; k++) {
+                            if (batch[k] < 0)
+                                return;
+                            seen.incrementAndGet((int) batch[k]);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (int p = 0; p < producers; p++)
+            threads[p].join();
+        // one end marker per consumer, taken one at a time so that no consumer gets two
+        for (int c = 0; c < consumers; c++) {
+            queue.put(-1);
+            while (!queue.isEmpty())
+                Thread.yield();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        for (int i = 0; i < seen.length(); i++)
+            assertEquals(1, seen.get(i), "value " + i);
+    }
+}
@@ -0,0 +1,27 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MatrixProdTest {
+
+    @Test
+    void blockedProductsMatchNaiveProduct() {
+        // dimensions that are not multiples of the block and tile sizes
+        int[][] A = MatrixProd.generateRandomMatrix(150, 301);
+        int[][] B = MatrixProd.generateRandomMatrix(301, 270);
+        MatrixProd mp = new MatrixProd(A, B);
+        int[][] expected = mp.naiveProduct();
+        assertArrayEquals(expected, mp.seqProduct());
+        assertArrayEquals(expected, mp.parProduct());
+        assertArrayEquals(expected, mp.parProduct(1));
+        assertArrayEquals(expected, mp.parProduct(3));
+    }
+
+    @Test
+    void rejectsIncompatibleDimensions() {
+        assertThrows(Error.class, () -> new MatrixProd(new int[2][3], new int[2][3]));
+    }
+}
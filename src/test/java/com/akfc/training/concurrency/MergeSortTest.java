@@ -0,0 +1,109 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MergeSortTest {
+
+    private static int[] expected(int[] input) {
+        int[] sorted = input.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Test
+    void sequentialSort() {
+        int[] input = new Random(1).ints(100_000).toArray();
+        assertArrayEquals(expected(input), new SequentialMergeSorter(input.clone()).sort());
+    }
+
+    @Test
+    void parallelSort() {
+        int[] input = new Random(2).ints(1_000_000).toArray();
+        assertArrayEquals(expected(input), new ParallelMergeSorter(input.clone()).sort());
+    }
+
+    @Test
+    void parallelSortWithDuplicatesAndPresortedRuns() {
+        int[] input = new Random(3).ints(500_000, 0, 100).toArray();
+        Arrays.sort(input, 0, input.length / 2);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(expected(input), new ParallelMergeSorter(input.clone(), pool).sort());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelSortOfAPrefixReusesTheScratch() {
+        int[] input = new Random(4).ints(100_000).toArray();
+        int[] buffer = input.clone(), scratch = new int[buffer.length];
+        ParallelMergeSorter sorter = new ParallelMergeSorter(buffer);
+        sorter.sort(60_001, scratch);
+        int[] expected = input.clone();
+        Arrays.sort(expected, 0, 60_001);
+        // the tail is left as it was
+        assertArrayEquals(expected, buffer);
+        System.arraycopy(input, 0, buffer, 0, 1000);
+        assertArrayEquals(expected(Arrays.copyOf(input, 1000)), Arrays.copyOf(sorter.sort(1000, scratch), 1000));
+        assertThrows(IllegalArgumentException.class, () -> sorter.sort(1000, new int[999]));
+    }
+
+    @Test
+    void tinyInputs() {
+        assertArrayEquals(new int[0], new ParallelMergeSorter(new int[0]).sort());
+        assertArrayEquals(new int[]{7}, new SequentialMergeSorter(new int[]{7}).sort());
+    }
+
+    @Test
+    void longSort() {
+        long[] input = new Random(4).longs(300_000).toArray();
+        long[] sorted = input.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, new LongParallelMergeSorter(input).sort());
+    }
+
+    @Test
+    void doubleSortFollowsArraysSortOrder() {
+        double[] input = new Random(5).doubles(300_000, -1, 1).toArray();
+        for (int i = 0; i < input.length; i += 1000) {
+            input[i] = i % 3000 == 0 ? Double.NaN : (i % 2000 == 0 ? -0.0 : 0.0);
+        }
+        double[] sorted = input.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, new DoubleParallelMergeSorter(input).sort());
+    }
+
+    @Test
+    void argsortIsStable() {
+        int[] keys = new Random(6).ints(200_000, 0, 1000).toArray();
+        int[] order = IntKeyValueParallelMergeSorter.argsort(keys);
+        for (int i = 1; i < order.length; i++) {
+            int previous = keys[order[i - 1]], current = keys[order[i]];
+            assertTrue(previous < current || (previous == current && order[i - 1] < order[i]));
+        }
+    }
+
+    @Test
+    void radixSort() {
+        int[] input = new Random(7).ints(1_000_000).toArray();
+        input[0] = Integer.MIN_VALUE;
+        input[1] = Integer.MAX_VALUE;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(expected(input), new ParallelRadixSorter(input.clone(), pool).sort());
+        } finally {
+            pool.shutdown();
+        }
+        int[] small = new Random(8).ints(1000, -50, 50).toArray();
+        assertArrayEquals(expected(small), new ParallelRadixSorter(small.clone()).sort());
+    }
+}
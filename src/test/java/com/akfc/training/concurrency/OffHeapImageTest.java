@@ -0,0 +1,98 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapImageTest {
+
+    @Test
+    void pointOpsAndStatisticsMatchHeapImages() {
+        // not a whole number of tiles
+        PackedImage heap = ConvolutionEngineTest.randomImage(311, 217, 41);
+        try (OffHeapImage image = OffHeapImage.copyOf(heap)) {
+            assertEquals(heap.get(17, 5), image.get(17, 5));
+            new ImagePipeline().sepia().adjustContrast(2).applyInPlace(image);
+            PackedImage expected = new ImagePipeline().sepia().adjustContrast(2).apply(heap);
+            assertArrayEquals(expected.getPixels(), image.toPackedImage().getPixels());
+
+            ImageStatistics offHeap = ImageStatistics.of(image), onHeap = ImageStatistics.of(expected);
+            for (int k = 0; k < 3; k++)
+                assertArrayEquals(onHeap.histogram(k), offHeap.histogram(k));
+            assertArrayEquals(expected.getPixels(), image.region(0, 0, 311, 217).getPixels());
+            assertEquals(expected.get(300, 200), image.region(290, 190, 20, 20).get(10, 10));
+            assertThrows(IllegalStateException.class, () -> new ImagePipeline().convolveSeparable(new int[]{1, 2, 1}, 1.0 / 16)
+                    .applyInPlace(image));
+        }
+    }
+
+    @Test
+    void imageProcessingTransformsOffHeapImagesInPlace() {
+        PackedImage heap = ConvolutionEngineTest.randomImage(131, 67, 43);
+        try (OffHeapImage image = OffHeapImage.copyOf(heap)) {
+            ImageProcessing ip = new ImageProcessing(image);
+            ip.invert();
+            ip.pipeline().grayScale().adjustBrightness(10);
+            assertSame(image, ip.getOffHeapImage());
+            PackedImage expected = new ImagePipeline().invert().grayScale().adjustBrightness(10).apply(heap);
+            assertArrayEquals(expected.getPixels(), image.toPackedImage().getPixels());
+            assertArrayEquals(ImageStatistics.of(expected).meanColor(), ip.averageColor());
+
+            // full-frame transforms need a heap copy
+            assertThrows(IllegalStateException.class, ip::blur);
+            assertThrows(IllegalStateException.class, ip::rightRotate);
+            assertThrows(IllegalStateException.class, ip::getTransformedImage);
+            ip.pipeline().convolveSeparable(new int[]{1, 2, 1}, 1.0 / 16);
+            assertThrows(IllegalStateException.class, ip::getOffHeapImage);
+            ip.loadRegion(image, 10, 5, 20, 30);
+            ip.blur();
+            assertEquals(20, ip.getTransformedImage().getWidth());
+            assertThrows(IllegalStateException.class, ip::getOffHeapImage);
+        }
+    }
+
+    @Test
+    void downsampleAveragesBlocks() {
+        try (Arena arena = Arena.ofShared()) {
+            OffHeapImage image = OffHeapImage.allocate(arena, 5, 3);
+            for (int y = 0; y < 3; y++)
+                for (int x = 0; x < 5; x++)
+                    image.set(x, y, PackedImage.rgb(10 * x, 10 * y, 100));
+            PackedImage small = image.downsample(2);
+            assertEquals(3, small.getWidth());
+            assertEquals(2, small.getHeight());
+            assertEquals(PackedImage.rgb(5, 5, 100), small.get(0, 0));
+            // partial blocks on the right and bottom edges
+            assertEquals(PackedImage.rgb(40, 20, 100), small.get(2, 1));
+
+            ImageProcessing ip = new ImageProcessing(ImageProcessingTest.randomImage(2, 2, 0));
+            ip.loadImageFromOffHeap(image, 3);
+            assertArrayEquals(small.getPixels(), ip.getTransformedImage().getPixels());
+        }
+    }
+
+    @Test
+    void rawFilesAreMappedInPlace(@TempDir Path dir) throws IOException {
+        PackedImage heap = ConvolutionEngineTest.randomImage(64, 48, 42);
+        Path file = dir.resolve("scan.raw");
+        try (OffHeapImage image = OffHeapImage.copyOf(heap)) {
+            image.writeRaw(file);
+        }
+        try (OffHeapImage mapped = OffHeapImage.map(file, 64, 48, true)) {
+            assertArrayEquals(heap.getPixels(), mapped.toPackedImage().getPixels());
+            mapped.apply(PixelOps.invert());
+        }
+        try (OffHeapImage mapped = OffHeapImage.map(file, 64, 48, false)) {
+            assertArrayEquals(new ImagePipeline().invert().apply(heap).getPixels(), mapped.toPackedImage().getPixels());
+        }
+        assertThrows(IOException.class, () -> OffHeapImage.map(file, 64, 47, false));
+    }
+}
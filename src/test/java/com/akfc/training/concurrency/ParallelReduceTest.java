@@ -0,0 +1,65 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelReduceTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void matchesSequentialReductions() {
+        int[] a = new Random(19).ints(1_000_003, -1_000_000, 1_000_000).toArray();
+        assertEquals(Arrays.stream(a).asLongStream().sum(), ParallelReduce.sum(POOL, a));
+        assertEquals(Arrays.stream(a).min().getAsInt(), ParallelReduce.min(POOL, a));
+        assertEquals(Arrays.stream(a).max().getAsInt(), ParallelReduce.max(POOL, a));
+        double[] d = Arrays.stream(a).asDoubleStream().toArray();
+        assertEquals(Arrays.stream(d).sum(), ParallelReduce.sum(POOL, d), 1e-3);
+    }
+
+    @Test
+    void histogram() {
+        int[] a = new Random(7).ints(300_001, 0, 100).toArray();
+        long[] expected = new long[100];
+        for (int v : a)
+            expected[v]++;
+        assertArrayEquals(expected, ParallelReduce.histogram(POOL, a, 100));
+    }
+
+    @Test
+    void combinesInIndexOrder() {
+        // string concatenation is associative but not commutative
+        String digits = ParallelReduce.reduce(POOL, 0, 20_000, 1, (lo, hi) -> {
+            StringBuilder sb = new StringBuilder();
+            for (long i = lo; i < hi; i++)
+                sb.append(i % 10);
+            return sb.toString();
+        }, String::concat);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20_000; i++)
+            expected.append(i % 10);
+        assertEquals(expected.toString(), digits);
+    }
+
+    @Test
+    void emptyAndInvalidRanges() {
+        assertEquals(0, ParallelReduce.sum(POOL, new int[0]));
+        assertEquals(7, ParallelReduce.reduceLong(POOL, 5, 5, (lo, hi) -> 7, Long::sum));
+        assertThrows(IllegalArgumentException.class, () -> ParallelReduce.min(POOL, new int[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> ParallelReduce.reduceLong(POOL, 5, 4, (lo, hi) -> 0, Long::sum));
+    }
+}
@@ -0,0 +1,65 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PhasedEngineTest {
+
+    @Test
+    void mergesThePartialsOfEveryPhase() throws InterruptedException {
+        for (PhasedEngine.Sync sync : PhasedEngine.Sync.values()) {
+            PhasedEngine engine = new PhasedEngine(3, sync);
+            List<Long> sums = new ArrayList<>();
+            // partials are reused: each one accumulates its worker's values over the phases
+            int phases = engine.run(500, w -> new long[1], (w, phase, partial) -> partial[0] += w * 1000L + phase,
+                    (phase, partials) -> {
+                        long sum = 0;
+                        for (long[] partial : partials)
+                            sum += partial[0];
+                        sums.add(sum);
+                        return true;
+                    });
+            assertEquals(500, phases, sync.toString());
+            for (int p = 0; p < 500; p++) {
+                long phaseSum = 0;
+                for (int q = 0; q <= p; q++)
+                    phaseSum += 3000 + 3L * q;
+                assertEquals(phaseSum, sums.get(p), sync + " phase " + p);
+            }
+        }
+    }
+
+    @Test
+    void mergeStopsTheComputation() throws InterruptedException {
+        for (PhasedEngine.Sync sync : PhasedEngine.Sync.values()) {
+            int[] computed = new int[4];
+            int phases = new PhasedEngine(4, sync).run(1000, w -> w, (w, phase, worker) -> computed[worker]++,
+                    (phase, partials) -> phase < 9);
+            assertEquals(10, phases);
+            for (int c : computed)
+                assertEquals(10, c);
+        }
+    }
+
+    @Test
+    void failuresAreRethrown() {
+        for (PhasedEngine.Sync sync : PhasedEngine.Sync.values()) {
+            PhasedEngine engine = new PhasedEngine(3, sync);
+            IllegalStateException failure = new IllegalStateException("worker failed");
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> engine.run(1000, w -> w,
+                    (w, phase, worker) -> {
+                        if (worker == 1 && phase == 5)
+                            throw failure;
+                    }, (phase, partials) -> true)));
+            assertThrows(ArithmeticException.class, () -> engine.run(1000, w -> w, (w, phase, worker) -> {
+            }, (phase, partials) -> 1 / (phase - 3) < 1));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new PhasedEngine(0));
+    }
+}
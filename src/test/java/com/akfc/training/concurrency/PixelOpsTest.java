@@ -0,0 +1,39 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PixelOpsTest {
+
+    @Test
+    void fixedPointThirdIsExact() {
+        for (int sum = 0; sum <= 3 * 255; sum++)
+            assertEquals(sum / 3, sum * PixelOps.THIRD >>> PixelOps.FIXED_POINT_SHIFT);
+    }
+
+    @Test
+    void vectorKernelsMatchScalarOnes() {
+        int[] pixels = new Random(5).ints(1003, 0, 0x1000000).toArray();
+        pixels[0] = 0;
+        pixels[1] = 0xFFFFFF;
+        assertVectorMatchesScalar(pixels, PixelOps.scalarGrayScale(), VectorPixelOps.grayScale());
+        assertVectorMatchesScalar(pixels, PixelOps.scalarSepia(), VectorPixelOps.sepia());
+        assertVectorMatchesScalar(pixels, PixelOps.scalarInvert(), VectorPixelOps.invert());
+        for (int val : new int[]{-300, -40, 0, 17, 255})
+            assertVectorMatchesScalar(pixels, PixelOps.scalarAdjustBrightness(val), VectorPixelOps.adjustBrightness(val));
+        for (int factor : new int[]{-2, 0, 1, 3, 1000})
+            assertVectorMatchesScalar(pixels, PixelOps.scalarAdjustContrast(factor), VectorPixelOps.adjustContrast(factor));
+    }
+
+    /* applies both ops to a range that starts and ends off the vector boundaries */
+    private static void assertVectorMatchesScalar(int[] pixels, PixelOp scalar, PixelOp vector) {
+        int[] expected = pixels.clone(), actual = pixels.clone();
+        scalar.apply(expected, 3, 998);
+        vector.apply(actual, 3, 998);
+        assertArrayEquals(expected, actual);
+    }
+}
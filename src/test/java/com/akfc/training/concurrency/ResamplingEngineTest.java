@@ -0,0 +1,110 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResamplingEngineTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+    private final ResamplingEngine engine = new ResamplingEngine(POOL);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void weightTablesAreNormalizedAndCached() {
+        for (ResamplingEngine.Filter filter : ResamplingEngine.Filter.values()) {
+            for (int[] sizes : new int[][]{{100, 37}, {37, 100}, {5, 1}, {1, 5}, {640, 64}}) {
+                ResamplingEngine.WeightTable table = engine.table(sizes[0], sizes[1], filter);
+                for (int i = 0; i < sizes[1]; i++) {
+                    double sum = 0;
+                    for (int k = 0; k < table.taps; k++)
+                        sum += table.weights[i * table.taps + k];
+                    assertEquals(1, sum, 1e-5);
+                    assertTrue(table.start[i] >= 0 && table.start[i] + table.taps <= sizes[0]);
+                }
+                assertSame(table, engine.table(sizes[0], sizes[1], filter));
+            }
+        }
+    }
+
+    @Test
+    void resizeKeepsFlatAreasAndIdentity() {
+        PackedImage src = ConvolutionEngineTest.randomImage(123, 45, 21);
+        PackedImage flat = new PackedImage(123, 45);
+        Arrays.fill(flat.getPixels(), 0x3C7FC8);
+        for (ResamplingEngine.Filter filter : ResamplingEngine.Filter.values()) {
+            assertArrayEquals(src.getPixels(), engine.resize(src, 123, 45, filter).getPixels());
+            for (int[] size : new int[][]{{300, 20}, {17, 90}, {1, 1}}) {
+                PackedImage resized = engine.resize(flat, size[0], size[1], filter);
+                assertEquals(size[0], resized.getWidth());
+                assertEquals(size[1], resized.getHeight());
+                for (int px : resized.getPixels())
+                    assertEquals(0x3C7FC8, px);
+            }
+        }
+        PackedImage twice = engine.resize(src, 246, 90, ResamplingEngine.Filter.NEAREST);
+        for (int y = 0; y < 90; y++)
+            for (int x = 0; x < 246; x++)
+                assertEquals(src.get(x / 2, y / 2), twice.get(x, y));
+    }
+
+    @Test
+    void bilinearInterpolatesBetweenPixels() {
+        PackedImage src = new PackedImage(2, 1, new int[]{0, 0x808080});
+        // output centers fall at source positions 0.25 and 0.75, between the two pixels
+        PackedImage resized = engine.resize(src, 4, 1, ResamplingEngine.Filter.BILINEAR);
+        assertArrayEquals(new int[]{0, 0x202020, 0x606060, 0x808080}, resized.getPixels());
+    }
+
+    @Test
+    void pyramidAndThumbnails() {
+        PackedImage src = ConvolutionEngineTest.randomImage(203, 100, 22);
+        List<PackedImage> pyramid = engine.pyramid(src, 3);
+        assertEquals(4, pyramid.size());
+        assertEquals(26, pyramid.get(3).getWidth());
+        assertEquals(13, pyramid.get(3).getHeight());
+        PackedImage half = pyramid.get(1);
+        int a = src.get(2, 4), b = src.get(3, 4), c = src.get(2, 5), d = src.get(3, 5);
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int sum = ((a >> shift) & 0xFF) + ((b >> shift) & 0xFF) + ((c >> shift) & 0xFF) + ((d >> shift) & 0xFF);
+            assertEquals((sum + 2) / 4, (half.get(1, 2) >> shift) & 0xFF);
+        }
+
+        List<PackedImage> thumbnails = engine.thumbnails(src, ResamplingEngine.Filter.LANCZOS3, 150, 40, 203);
+        assertEquals(150, thumbnails.get(0).getWidth());
+        assertEquals(74, thumbnails.get(0).getHeight());
+        assertEquals(40, thumbnails.get(1).getWidth());
+        assertEquals(20, thumbnails.get(1).getHeight());
+        // 40 is resized from the 51 pixel wide level
+        assertArrayEquals(engine.resize(pyramid.get(2), 40, 20, ResamplingEngine.Filter.LANCZOS3).getPixels(),
+                thumbnails.get(1).getPixels());
+        assertArrayEquals(src.getPixels(), thumbnails.get(2).getPixels());
+    }
+
+    @Test
+    void halveKeepsTheLastRowAndColumnOfOddSizes() {
+        PackedImage src = new PackedImage(5, 3, new int[]{
+                0x000000, 0x040404, 0x080808, 0x0C0C0C, 0x101010,
+                0x141414, 0x181818, 0x1C1C1C, 0x202020, 0x242424,
+                0x282828, 0x2C2C2C, 0x303030, 0x343434, 0x383838});
+        PackedImage half = engine.halve(src);
+        assertEquals(3, half.getWidth());
+        assertEquals(2, half.getHeight());
+        // the last column and row are averaged with themselves
+        assertArrayEquals(new int[]{
+                0x0C0C0C, 0x141414, 0x1A1A1A,
+                0x2A2A2A, 0x323232, 0x383838}, half.getPixels());
+    }
+}
@@ -0,0 +1,202 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void boundedFifo() {
+        RingBuffer<Integer> queue = RingBuffer.mpmc(5);
+        assertEquals(8, queue.capacity());
+        assertNull(queue.poll());
+        for (int i = 0; i < 8; i++)
+            assertTrue(queue.offer(i));
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), new ArrayList<>(queue));
+        assertEquals(0, queue.peek());
+        // wraps around
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 8; i++) {
+                assertEquals(lap * 8 + i, queue.poll());
+                assertTrue(queue.offer(lap * 8 + i + 8));
+            }
+        }
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+        queue.clear();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void batches() {
+        RingBuffer<Integer> queue = RingBuffer.spsc(16);
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            items.add(i);
+        assertEquals(16, queue.offerAll(items));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(10, queue.drainTo(drained, 10));
+        assertEquals(4, queue.offerAll(items.subList(16, 20)));
+        assertEquals(10, queue.drainTo(drained));
+        assertEquals(items, drained);
+        assertThrows(IllegalArgumentException.class, () -> queue.drainTo(queue));
+    }
+
+    @Test
+    void refusedElementsStayQueuedWithASingleConsumer() {
+        for (RingBuffer<Integer> queue : List.of(RingBuffer.<Integer>spsc(8), RingBuffer.<Integer>mpsc(8))) {
+            queue.offerAll(List.of(0, 1, 2, 3, 4, 5));
+            List<Integer> drained = new Refusing(2);
+            assertThrows(IllegalStateException.class, () -> queue.drainTo(drained));
+            assertEquals(List.of(0, 1), drained);
+            assertEquals(4, queue.size());
+            assertEquals(List.of(2, 3, 4, 5), new ArrayList<>(queue));
+            // the freed slots are reused
+            assertEquals(2, queue.offerAll(List.of(6, 7)));
+            List<Integer> rest = new ArrayList<>();
+            assertEquals(6, queue.drainTo(rest));
+            assertEquals(List.of(2, 3, 4, 5, 6, 7), rest);
+        }
+    }
+
+    @Test
+    void refusedBatchIsLostWithSeveralConsumers() {
+        RingBuffer<Integer> queue = RingBuffer.mpmc(8);
+        queue.offerAll(List.of(0, 1, 2, 3, 4, 5));
+        List<Integer> drained = new Refusing(2);
+        assertThrows(IllegalStateException.class, () -> queue.drainTo(drained, 4));
+        assertEquals(List.of(0, 1), drained);
+        // 2 and 3 were claimed with the batch, as documented
+        assertEquals(List.of(4, 5), new ArrayList<>(queue));
+        assertEquals(6, queue.offerAll(List.of(6, 7, 8, 9, 10, 11)));
+        assertEquals(8, queue.size());
+    }
+
+    @Test
+    void timedAndInterruptedWaits() throws InterruptedException {
+        RingBuffer<Integer> queue = RingBuffer.mpsc(1, WaitStrategy.PARK);
+        assertEquals(2, queue.capacity());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer(1, 10, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+        assertFalse(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> queue.put(3));
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    void singleProducerSingleConsumerKeepsOrder() throws InterruptedException {
+        RingBuffer<Integer> queue = RingBuffer.spsc(64, WaitStrategy.YIELD);
+        int count = 200_000;
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < count; i++)
+                    queue.put(i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        for (int i = 0; i < count; i++)
+            assertEquals(i, queue.take());
+        producer.join();
+    }
+
+    @Test
+    void multipleProducersKeepTheirOwnOrder() throws InterruptedException {
+        RingBuffer<long[]> queue = RingBuffer.mpsc(128, WaitStrategy.YIELD);
+        int producers = 4, count = 50_000;
+        startProducers(queue, producers, count);
+        long[] next = new long[producers];
+        List<long[]> batch = new ArrayList<>();
+        for (int received = 0; received < producers * count; ) {
+            if (queue.drainTo(batch, 32) == 0)
+                Thread.yield();
+            for (long[] item : batch) {
+                assertEquals(next[(int) item[0]]++, item[1]);
+                received++;
+            }
+            batch.clear();
+        }
+        for (int p = 0; p < producers; p++)
+            assertEquals(count, next[p]);
+    }
+
+    @Test
+    void multipleConsumersSeeEveryElementOnce() throws InterruptedException {
+        RingBuffer<long[]> queue = RingBuffer.mpmc(64, WaitStrategy.YIELD);
+        int producers = 3, consumers = 3, count = 50_000;
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * count);
+        List<Thread> threads = startProducers(queue, producers, count);
+        for (int c = 0; c < consumers; c++) {
+            Thread consumer = new Thread(() -> {
+                try {
+                    for (long[] item = queue.take(); item[0] >= 0; item = queue.take())
+                        seen.incrementAndGet((int) (item[0] * count + item[1]));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumer.start();
+            threads.add(consumer);
+        }
+        for (int p = 0; p < producers; p++)
+            threads.get(p).join();
+        for (int c = 0; c < consumers; c++)
+            queue.put(new long[]{-1, -1});
+        for (Thread thread : threads)
+            thread.join();
+        for (int i = 0; i < seen.length(); i++)
+            assertEquals(1, seen.get(i), "element " + i);
+    }
+
+    /* producer p puts {p, 0}, {p, 1}... {p, count - 1} */
+    private static List<Thread> startProducers(BlockingQueue<long[]> queue, int producers, int count) {
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long id = p;
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++)
+                        queue.put(new long[]{id, i});
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+            threads.add(producer);
+        }
+        return threads;
+    }
+
+    /* list that refuses any element beyond the first capacity */
+    private static final class Refusing extends ArrayList<Integer> {
+
+        private final int capacity;
+
+        Refusing(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean add(Integer e) {
+            if (size() == capacity)
+                throw new IllegalStateException("Full");
+            return super.add(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.akfc.training.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VectorApiMatrixMultiplicationTest {
+
+    private static void assertMatricesEqual(float[][] expected, float[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals(expected[i][j], actual[i][j], 1e-3f, "at [" + i + "][" + j + "]");
+            }
+        }
+    }
+
+    @Test
+    void vectorizedProductsMatchTraditionalProduct() {
+        // not a multiple of the vector length nor of the micro-kernel rows
+        for (int size : new int[]{1, 7, 67, 130}) {
+            VectorApiMatrixMultiplication demo = new VectorApiMatrixMultiplication(size);
+            float[][] expected = demo.traditionalMultiply();
+            assertMatricesEqual(expected, demo.optimizedVectorizedMultiply());
+            assertMatricesEqual(expected, demo.packedVectorizedMultiply());
+            assertMatricesEqual(expected, demo.parallelVectorizedMultiply());
+        }
+    }
+
+    @Test
+    void parallelProductReusesCallerMatrix() {
+        VectorApiMatrixMultiplication demo = new VectorApiMatrixMultiplication(200);
+        float[][] expected = demo.traditionalMultiply();
+        float[][] result = new float[200][200];
+        assertSame(result, demo.parallelVectorizedMultiply(result));
+        // a second run over the previous values overwrites them
+        demo.parallelVectorizedMultiply(result);
+        assertMatricesEqual(expected, result);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertSame(result, demo.parallelVectorizedMultiply(result, pool));
+            assertMatricesEqual(expected, result);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelProductChecksTheResultShape() {
+        VectorApiMatrixMultiplication empty = new VectorApiMatrixMultiplication(0);
+        float[][] none = new float[0][0];
+        assertSame(none, empty.parallelVectorizedMultiply(none));
+        assertThrows(IllegalArgumentException.class, () -> empty.parallelVectorizedMultiply(new float[1][1]));
+
+        VectorApiMatrixMultiplication demo = new VectorApiMatrixMultiplication(100);
+        float[][] ragged = new float[100][100];
+        ragged[99] = new float[99];
+        assertThrows(IllegalArgumentException.class, () -> demo.parallelVectorizedMultiply(ragged));
+        assertThrows(IllegalArgumentException.class, () -> demo.parallelVectorizedMultiply(new float[100][101]));
+        assertThrows(IllegalArgumentException.class, () -> demo.parallelVectorizedMultiply(new float[0][0]));
+    }
+}